@@ -0,0 +1,578 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.util.ValueUtils;
+import org.neo4j.values.AnyValue;
+import org.neo4j.values.AnyValueWriter;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.TextArray;
+import org.neo4j.values.storable.TextValue;
+import org.neo4j.values.virtual.MapValue;
+import org.neo4j.values.virtual.NodeValue;
+import org.neo4j.values.virtual.RelationshipValue;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes Neo4j's {@link AnyValue values} as Jolt, without converting them into Java objects first. The output is the
+ * same as the output of a {@link JoltCodec} with the same settings for the Java representation of the values, except
+ * that arrays are written as plain JSON arrays inside lists and maps as well.
+ * <p>
+ * Node and relationship references, as they are contained in Cypher results, only carry an id. They are materialized
+ * with an {@link EntityResolver}, for example {@link EntityResolver#of(Transaction) one reading from the transaction}
+ * the result belongs to. A writer created without a resolver fails on references with an
+ * {@link UnsupportedOperationException}.
+ * <p>
+ * Instances keep track of the structure written so far and can only be used for one value at a time and not from
+ * several threads.
+ */
+public final class JoltAnyValueWriter implements AnyValueWriter<IOException> {
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Inside a list, an array or the properties of an entity.
+	 */
+	private static final byte VALUES = 0;
+
+	/**
+	 * Inside a map, the next string written is a key.
+	 */
+	private static final byte MAP_KEY = 1;
+
+	/**
+	 * Inside a map, the next value belongs to the last key.
+	 */
+	private static final byte MAP_VALUE = 2;
+
+	private final JsonGenerator generator;
+
+	private final boolean strictModeEnabled;
+
+	private final JoltCodec.BinaryEncoding binaryEncoding;
+
+	private final EntityResolver entityResolver;
+
+	private byte[] containers = new byte[8];
+
+	private int depth;
+
+	/**
+	 * Type of the array being written, {@literal null} outside arrays. Arrays of storable values cannot be nested.
+	 */
+	private ArrayType arrayType;
+
+	private final StringBuilder chars = new StringBuilder();
+
+	/**
+	 * Buffer numbers, temporals and durations are formatted into.
+	 */
+	private char[] buffer = new char[JoltTemporalFormatter.MAX_LENGTH];
+
+	/**
+	 * Creates a new writer using hex encoding for binary values.
+	 *
+	 * @param generator         The generator to write to
+	 * @param strictModeEnabled {@code true} to write all values with their sigil
+	 */
+	public JoltAnyValueWriter(JsonGenerator generator, boolean strictModeEnabled) {
+		this(generator, strictModeEnabled, JoltCodec.BinaryEncoding.HEX);
+	}
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param generator         The generator to write to
+	 * @param strictModeEnabled {@code true} to write all values with their sigil
+	 * @param binaryEncoding    The encoding for binary values
+	 */
+	public JoltAnyValueWriter(JsonGenerator generator, boolean strictModeEnabled,
+		JoltCodec.BinaryEncoding binaryEncoding) {
+
+		this(generator, strictModeEnabled, binaryEncoding, null);
+	}
+
+	/**
+	 * Creates a new writer that materializes node and relationship references.
+	 *
+	 * @param generator         The generator to write to
+	 * @param strictModeEnabled {@code true} to write all values with their sigil
+	 * @param binaryEncoding    The encoding for binary values
+	 * @param entityResolver    Used to look up referenced nodes and relationships, may be {@literal null}
+	 */
+	public JoltAnyValueWriter(JsonGenerator generator, boolean strictModeEnabled,
+		JoltCodec.BinaryEncoding binaryEncoding, EntityResolver entityResolver) {
+
+		this.generator = generator;
+		this.strictModeEnabled = strictModeEnabled;
+		this.binaryEncoding = binaryEncoding;
+		this.entityResolver = entityResolver;
+	}
+
+	/**
+	 * Writes a complete value.
+	 *
+	 * @param value The value to write
+	 * @throws IOException if the value cannot be written
+	 */
+	public void write(AnyValue value) throws IOException {
+		value.writeTo(this);
+	}
+
+	@Override
+	public void writeNull() throws IOException {
+		generator.writeNull();
+		valueWritten();
+	}
+
+	@Override
+	public void writeBoolean(boolean value) throws IOException {
+		if (strictModeEnabled && arrayType == null) {
+			writeTyped(Sigil.BOOLEAN, String.valueOf(value));
+		} else {
+			generator.writeBoolean(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeInteger(byte value) throws IOException {
+		writeInteger((short) value);
+	}
+
+	@Override
+	public void writeInteger(short value) throws IOException {
+		if (arrayType == null) {
+			startTyped(Sigil.REAL);
+			generator.writeNumber(value);
+			endTyped();
+		} else {
+			generator.writeNumber(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeInteger(int value) throws IOException {
+		if (strictModeEnabled && arrayType == null) {
+			writeTyped(Sigil.INTEGER, JoltNumberCodec.formatLong(value, buffer, 0));
+		} else {
+			generator.writeNumber(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeInteger(long value) throws IOException {
+		if (arrayType != null) {
+			generator.writeNumber(value);
+		} else if (strictModeEnabled) {
+			// Same range as JoltTypeIdResolver uses for longs
+			var sigil = value >= Integer.MIN_VALUE && value < Integer.MAX_VALUE ? Sigil.INTEGER : Sigil.REAL;
+			writeTyped(sigil, JoltNumberCodec.formatLong(value, buffer, 0));
+		} else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			generator.writeNumber(value);
+		} else {
+			writeTyped(Sigil.REAL, JoltNumberCodec.formatLong(value, buffer, 0));
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeFloatingPoint(float value) throws IOException {
+		if (arrayType == null) {
+			startTyped(Sigil.REAL);
+			generator.writeNumber(value);
+			endTyped();
+		} else {
+			generator.writeNumber(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeFloatingPoint(double value) throws IOException {
+		if (arrayType == null) {
+			writeTyped(Sigil.REAL, JoltNumberCodec.formatDouble(value, buffer, 0));
+		} else {
+			generator.writeNumber(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeString(String value) throws IOException {
+		if (isKeyExpected()) {
+			generator.writeFieldName(value);
+			containers[depth - 1] = MAP_VALUE;
+			return;
+		}
+
+		if (strictModeEnabled && arrayType == null) {
+			writeTyped(Sigil.UNICODE, value);
+		} else {
+			generator.writeString(value);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeString(char value) throws IOException {
+		// Character arrays are written as a single string, the same way Jackson does for char[]
+		if (arrayType == ArrayType.CHAR) {
+			chars.append(value);
+		} else {
+			writeString(String.valueOf(value));
+		}
+	}
+
+	@Override
+	public void beginArray(int size, ArrayType arrayType) throws IOException {
+		this.arrayType = arrayType;
+		push(VALUES);
+		if (arrayType == ArrayType.CHAR) {
+			chars.setLength(0);
+		} else {
+			generator.writeStartArray(size);
+		}
+	}
+
+	@Override
+	public void endArray() throws IOException {
+		if (arrayType == ArrayType.CHAR) {
+			generator.writeString(chars.toString());
+		} else {
+			generator.writeEndArray();
+		}
+		pop();
+		this.arrayType = null;
+		valueWritten();
+	}
+
+	@Override
+	public void writeByteArray(byte[] value) throws IOException {
+		if (binaryEncoding == JoltCodec.BinaryEncoding.BASE64) {
+			startTyped(Sigil.BINARY_BASE64);
+			generator.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, value, 0, value.length);
+			endTyped();
+		} else {
+			startTyped(Sigil.BINARY);
+			var hex = new char[2 * value.length];
+			for (int i = 0; i < value.length; ++i) {
+				hex[2 * i] = HEX_DIGITS[(value[i] >> 4) & 0xf];
+				hex[2 * i + 1] = HEX_DIGITS[value[i] & 0xf];
+			}
+			generator.writeString(hex, 0, hex.length);
+			endTyped();
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writePoint(CoordinateReferenceSystem crs, double[] coordinate) throws IOException {
+
+		var wkt = new StringBuilder()
+			.append("SRID=")
+			.append(crs.getCode())
+			.append(";POINT")
+			.append(coordinate.length == 3 ? " Z " : "")
+			.append("(");
+		for (int i = 0; i < coordinate.length; ++i) {
+			if (i > 0) {
+				wkt.append(' ');
+			}
+			wkt.append(coordinate[i]);
+		}
+		wkt.append(")");
+
+		writeTyped(Sigil.SPATIAL, wkt.toString());
+		valueWritten();
+	}
+
+	@Override
+	public void writeDuration(long months, long days, long seconds, int nanos) throws IOException {
+		writeTemporal(JoltTemporalFormatter.formatDuration(months, days, seconds, nanos, buffer, 0));
+	}
+
+	@Override
+	public void writeDate(LocalDate localDate) throws IOException {
+		writeTemporal(JoltTemporalFormatter.formatLocalDate(localDate, buffer, 0));
+	}
+
+	@Override
+	public void writeLocalTime(LocalTime localTime) throws IOException {
+		writeTemporal(JoltTemporalFormatter.formatLocalTime(localTime, buffer, 0));
+	}
+
+	@Override
+	public void writeTime(OffsetTime offsetTime) throws IOException {
+		writeTemporal(JoltTemporalFormatter.formatOffsetTime(offsetTime, buffer, 0));
+	}
+
+	@Override
+	public void writeLocalDateTime(LocalDateTime localDateTime) throws IOException {
+		writeTemporal(JoltTemporalFormatter.formatLocalDateTime(localDateTime, buffer, 0));
+	}
+
+	@Override
+	public void writeDateTime(ZonedDateTime zonedDateTime) throws IOException {
+		var requiredLength = JoltTemporalFormatter.MAX_LENGTH + zonedDateTime.getZone().getId().length();
+		if (buffer.length < requiredLength) {
+			buffer = new char[requiredLength];
+		}
+		writeTemporal(JoltTemporalFormatter.formatZonedDateTime(zonedDateTime, buffer, 0));
+	}
+
+	@Override
+	public void writeNodeReference(long nodeId) throws IOException {
+
+		if (entityResolver == null) {
+			throw new UnsupportedOperationException(
+				"Cannot write a node reference without an entity resolver for its labels and properties.");
+		}
+		entityResolver.node(nodeId).writeTo(this);
+	}
+
+	@Override
+	public void writeNode(long nodeId, TextArray labels, MapValue properties) throws IOException {
+
+		startTyped(Sigil.NODE);
+		generator.writeStartArray();
+
+		generator.writeNumber(nodeId);
+
+		generator.writeStartArray();
+		for (int i = 0; i < labels.length(); ++i) {
+			generator.writeString(labels.stringValue(i));
+		}
+		generator.writeEndArray();
+
+		writeProperties(properties);
+
+		generator.writeEndArray();
+		endTyped();
+		valueWritten();
+	}
+
+	@Override
+	public void writeRelationshipReference(long relId) throws IOException {
+
+		if (entityResolver == null) {
+			throw new UnsupportedOperationException(
+				"Cannot write a relationship reference without an entity resolver for its type, nodes and properties.");
+		}
+		entityResolver.relationship(relId).writeTo(this);
+	}
+
+	@Override
+	public void writeRelationship(long relId, long startNodeId, long endNodeId, TextValue type, MapValue properties)
+		throws IOException {
+
+		writeRelationship(Sigil.RELATIONSHIP, relId, startNodeId, type, endNodeId, properties);
+	}
+
+	@Override
+	public void writePath(NodeValue[] nodes, RelationshipValue[] relationships) throws IOException {
+
+		startTyped(Sigil.PATH);
+		generator.writeStartArray();
+		push(VALUES);
+
+		for (int i = 0; i < nodes.length; ++i) {
+			nodes[i].writeTo(this);
+			if (i < relationships.length) {
+				var relationship = relationships[i];
+				if (relationship.startNode().id() != nodes[i].id()) {
+					// Reverse the relationship so that the path flows correctly
+					writeRelationship(Sigil.RELATIONSHIP_REVERSED, relationship.id(), relationship.endNode().id(),
+						relationship.type(), relationship.startNode().id(), relationship.properties());
+				} else {
+					writeRelationship(Sigil.RELATIONSHIP, relationship.id(), relationship.startNode().id(),
+						relationship.type(), relationship.endNode().id(), relationship.properties());
+				}
+			}
+		}
+
+		pop();
+		generator.writeEndArray();
+		endTyped();
+		valueWritten();
+	}
+
+	@Override
+	public void beginMap(int size) throws IOException {
+		startTyped(Sigil.MAP);
+		generator.writeStartObject();
+		push(MAP_KEY);
+	}
+
+	@Override
+	public void endMap() throws IOException {
+		pop();
+		generator.writeEndObject();
+		endTyped();
+		valueWritten();
+	}
+
+	@Override
+	public void beginList(int size) throws IOException {
+		startTyped(Sigil.LIST);
+		generator.writeStartArray(size);
+		push(VALUES);
+	}
+
+	@Override
+	public void endList() throws IOException {
+		pop();
+		generator.writeEndArray();
+		endTyped();
+		valueWritten();
+	}
+
+	private void writeRelationship(Sigil sigil, long relId, long startNodeId, TextValue type, long endNodeId,
+		MapValue properties) throws IOException {
+
+		startTyped(sigil);
+		generator.writeStartArray();
+
+		generator.writeNumber(relId);
+		generator.writeNumber(startNodeId);
+		generator.writeString(type.stringValue());
+		generator.writeNumber(endNodeId);
+
+		writeProperties(properties);
+
+		generator.writeEndArray();
+		endTyped();
+		valueWritten();
+	}
+
+	private void writeProperties(MapValue properties) throws IOException {
+
+		push(VALUES);
+		generator.writeStartObject();
+		properties.foreach((key, value) -> {
+			generator.writeFieldName(key);
+			value.writeTo(this);
+		});
+		generator.writeEndObject();
+		pop();
+	}
+
+	private void writeTemporal(int length) throws IOException {
+		writeTyped(Sigil.TIME, length);
+		valueWritten();
+	}
+
+	private void writeTyped(Sigil sigil, String value) throws IOException {
+		startTyped(sigil);
+		generator.writeString(value);
+		endTyped();
+	}
+
+	/**
+	 * Writes the first {@code length} chars of the buffer as a typed string.
+	 */
+	private void writeTyped(Sigil sigil, int length) throws IOException {
+		startTyped(sigil);
+		generator.writeString(buffer, 0, length);
+		endTyped();
+	}
+
+	private void startTyped(Sigil sigil) throws IOException {
+		generator.writeStartObject();
+		generator.writeFieldName(sigil.getValue());
+	}
+
+	private void endTyped() throws IOException {
+		generator.writeEndObject();
+	}
+
+	private boolean isKeyExpected() {
+		return depth > 0 && containers[depth - 1] == MAP_KEY;
+	}
+
+	private void valueWritten() {
+		if (depth > 0 && containers[depth - 1] == MAP_VALUE) {
+			containers[depth - 1] = MAP_KEY;
+		}
+	}
+
+	private void push(byte container) {
+		if (depth == containers.length) {
+			containers = Arrays.copyOf(containers, 2 * depth);
+		}
+		containers[depth++] = container;
+	}
+
+	private void pop() {
+		--depth;
+	}
+
+	/**
+	 * Looks up the nodes and relationships behind references.
+	 */
+	public interface EntityResolver {
+
+		/**
+		 * @param nodeId The id of the referenced node
+		 * @return The node with its labels and properties
+		 */
+		NodeValue node(long nodeId);
+
+		/**
+		 * @param relationshipId The id of the referenced relationship
+		 * @return The relationship with its type, nodes and properties
+		 */
+		RelationshipValue relationship(long relationshipId);
+
+		/**
+		 * Creates a resolver reading from the given transaction, which must be open while values are written.
+		 *
+		 * @param transaction The transaction the written values belong to
+		 * @return A resolver reading from {@code transaction}
+		 */
+		static EntityResolver of(Transaction transaction) {
+
+			return new EntityResolver() {
+				@Override
+				public NodeValue node(long nodeId) {
+					return ValueUtils.fromNodeEntity(transaction.getNodeById(nodeId));
+				}
+
+				@Override
+				public RelationshipValue relationship(long relationshipId) {
+					return ValueUtils.fromRelationshipEntity(transaction.getRelationshipById(relationshipId));
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Incremental decoder for Jolt input that arrives in chunks, for example from a non-blocking network stack.
+ * Each top-level value in the input is a row. Chunks are fed through Jackson's non-blocking parser and a row
+ * is decoded with the given {@link JoltCodec} and handed to the row consumer as soon as its last byte has been
+ * fed. No thread is ever blocked waiting for more input.
+ * <p>
+ * Instances are not thread-safe: chunks of one input must be fed sequentially, in order.
+ *
+ * @param <T> The type of the decoded rows
+ */
+public final class JoltAsyncDecoder<T> implements AutoCloseable {
+
+	private final JoltCodec codec;
+
+	private final ObjectReader reader;
+
+	private final Consumer<? super T> rowConsumer;
+
+	private final JsonParser parser;
+
+	private final ByteArrayFeeder feeder;
+
+	private TokenBuffer currentRow;
+
+	private int depth;
+
+	/**
+	 * Creates a new decoder.
+	 *
+	 * @param codec       The codec used to decode complete rows
+	 * @param rowType     The type each row is decoded into
+	 * @param rowConsumer Receives the rows in the order they appear in the input
+	 * @throws IOException if the non-blocking parser cannot be created
+	 */
+	public JoltAsyncDecoder(JoltCodec codec, Class<T> rowType, Consumer<? super T> rowConsumer) throws IOException {
+		this.codec = codec;
+		this.reader = codec.readerFor(rowType);
+		this.rowConsumer = rowConsumer;
+		this.parser = codec.getFactory().createNonBlockingByteArrayParser();
+		this.feeder = (ByteArrayFeeder) this.parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * Feeds a complete chunk.
+	 *
+	 * @param chunk The next chunk of input
+	 * @return The number of rows that have been completed by this chunk
+	 * @throws IOException if the input is not valid Jolt
+	 * @see #feed(byte[], int, int)
+	 */
+	public int feed(byte[] chunk) throws IOException {
+		return feed(chunk, 0, chunk.length);
+	}
+
+	/**
+	 * Feeds the next chunk of input and emits all rows that are complete afterwards. The chunk is fully consumed
+	 * when this method returns, so the caller is free to reuse the array.
+	 *
+	 * @param chunk  Buffer containing the next chunk of input
+	 * @param offset Offset of the first byte to feed
+	 * @param length Number of bytes to feed
+	 * @return The number of rows that have been completed by this chunk
+	 * @throws IOException if the input is not valid Jolt
+	 */
+	public int feed(byte[] chunk, int offset, int length) throws IOException {
+		feeder.feedInput(chunk, offset, offset + length);
+		return drain();
+	}
+
+	/**
+	 * Signals that no more input will be fed and emits the last row, if any.
+	 *
+	 * @return The number of rows that have been completed by the end of input
+	 * @throws IOException if the input ended in the middle of a row
+	 */
+	public int endOfInput() throws IOException {
+		feeder.endOfInput();
+		int rows = drain();
+		if (currentRow != null) {
+			throw new JsonEOFException(parser, null, "Unexpected end of input inside a row");
+		}
+		return rows;
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+
+	private int drain() throws IOException {
+
+		int rows = 0;
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			if (currentRow == null) {
+				currentRow = new TokenBuffer(codec, false);
+			}
+			currentRow.copyCurrentEvent(parser);
+
+			if (token.isStructStart()) {
+				++depth;
+			} else if (token.isStructEnd()) {
+				--depth;
+			}
+
+			if (depth == 0) {
+				var row = currentRow;
+				currentRow = null;
+				try (var rowParser = row.asParser()) {
+					T value = reader.readValue(rowParser);
+					rowConsumer.accept(value);
+				}
+				++rows;
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Writes byte arrays base64 encoded with the {@link Sigil#BINARY_BASE64} sigil. The generator encodes straight into its
+ * output buffer.
+ */
+final class JoltBase64BinarySerializer extends StdScalarSerializer<byte[]>
+{
+    JoltBase64BinarySerializer()
+    {
+        super( byte[].class );
+    }
+
+    @Override
+    public void serialize( byte[] value, JsonGenerator generator, SerializerProvider provider ) throws IOException
+    {
+        generator.writeBinary( Base64Variants.MIME_NO_LINEFEEDS, value, 0, value.length );
+    }
+
+    @Override
+    public void serializeWithType( byte[] value, JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer )
+            throws IOException
+    {
+        var typeId = typeSerializer.typeId( value, JsonToken.VALUE_STRING );
+        typeId.id = Sigil.BINARY_BASE64.getValue();
+
+        typeSerializer.writeTypePrefix( generator, typeId );
+        serialize( value, generator, provider );
+        typeSerializer.writeTypeSuffix( generator, typeId );
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+/**
+ * Decodes binary values in either encoding, depending on the sigil they are wrapped in. Base64 is decoded by the parser
+ * directly from its input.
+ */
+final class JoltBinaryDeserializer extends StdScalarDeserializer<byte[]> {
+
+	private final Function<String, byte[]> hexDecoder;
+
+	JoltBinaryDeserializer(Function<String, byte[]> hexDecoder) {
+		super(byte[].class);
+		this.hexDecoder = hexDecoder;
+	}
+
+	@Override
+	public byte[] deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+
+		if (Sigil.BINARY_BASE64.getValue().equals(p.getCurrentName())) {
+			return p.getBinaryValue(Base64Variants.MIME_NO_LINEFEEDS);
+		}
+		return hexDecoder.apply(p.getValueAsString());
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Copies the encoded output of a generator into {@link ByteBuffer}s instead of a growing array. Buffers are taken from
+ * a supplier, filled from their position up to their limit and handed to a sink once they are full or the stream is
+ * closed, with position and limit set around the bytes written. Closing the stream does not close anything the sink
+ * writes to.
+ */
+final class JoltByteBufferOutputStream extends OutputStream {
+
+	/**
+	 * Receives the filled buffers.
+	 */
+	@FunctionalInterface
+	interface Sink {
+
+		/**
+		 * @param buffer A buffer whose remaining bytes are the next chunk of output
+		 * @throws IOException if the buffer cannot be consumed
+		 */
+		void accept(ByteBuffer buffer) throws IOException;
+	}
+
+	private final Supplier<ByteBuffer> buffers;
+
+	private final Sink sink;
+
+	private ByteBuffer current;
+
+	/**
+	 * Position of the current buffer when it was supplied.
+	 */
+	private int start;
+
+	private boolean closed;
+
+	JoltByteBufferOutputStream(Supplier<ByteBuffer> buffers, Sink sink) {
+		this.buffers = buffers;
+		this.sink = sink;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+
+		ensureOpen();
+		nextBufferIfFull();
+		current.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+
+		ensureOpen();
+		while (len > 0) {
+			nextBufferIfFull();
+			var n = Math.min(len, current.remaining());
+			current.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (current != null && current.position() > start) {
+			emitCurrent();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed.");
+		}
+	}
+
+	private void nextBufferIfFull() throws IOException {
+
+		if (current != null && current.hasRemaining()) {
+			return;
+		}
+		if (current != null) {
+			emitCurrent();
+		}
+		var next = buffers.get();
+		if (next == null || !next.hasRemaining()) {
+			throw new IOException("The buffer supplier must provide buffers with remaining space.");
+		}
+		current = next;
+		start = next.position();
+	}
+
+	private void emitCurrent() throws IOException {
+
+		var full = current;
+		current = null;
+		full.limit(full.position()).position(start);
+		sink.accept(full);
+	}
+}
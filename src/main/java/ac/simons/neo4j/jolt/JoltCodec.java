@@ -20,18 +20,45 @@
 package ac.simons.neo4j.jolt;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.DurationValue;
+import org.neo4j.values.storable.Values;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.cfg.MapperConfig;
-import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
@@ -39,7 +66,6 @@ import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.jsontype.impl.AsWrapperTypeDeserializer;
 import com.fasterxml.jackson.databind.jsontype.impl.StdTypeResolverBuilder;
-import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * Object Mapper configured to write results using the Jolt format.
@@ -47,6 +73,59 @@ import com.fasterxml.jackson.databind.util.TokenBuffer;
  * For example: {@code {"Z": 1}} where "Z" indicates the value is an integer.
  */
 public class JoltCodec extends ObjectMapper {
+
+	/**
+	 * Values of all concrete types commonly returned from Neo4j, written during {@link #warmUp()}.
+	 */
+	private static final List<Object> WARM_UP_VALUES = List.of(
+		1, 2147483649L, 42.23, "Hello", true, new byte[] { 1 },
+		LocalDate.EPOCH, OffsetTime.of(LocalTime.MIDNIGHT, ZoneOffset.UTC), LocalTime.MIDNIGHT,
+		ZonedDateTime.of(LocalDateTime.of(LocalDate.EPOCH, LocalTime.MIDNIGHT), ZoneOffset.UTC), LocalDateTime.of(LocalDate.EPOCH, LocalTime.MIDNIGHT),
+		DurationValue.parse("PT1H"),
+		Values.pointValue(CoordinateReferenceSystem.WGS84, 12.994823, 55.612191),
+		Values.pointValue(CoordinateReferenceSystem.WGS84_3D, 12.994823, 55.612191, 1.0),
+		List.of(1), List.of(1, "a", 42.23), new ArrayList<>(List.of(1)),
+		Map.of("a", 1), Map.of("a", 1, "b", 2), new HashMap<>(Map.of("a", 1))
+	);
+
+	/**
+	 * Jolt documents for all sigils that can be decoded, read during {@link #warmUp()}.
+	 */
+	private static final List<String> WARM_UP_DOCUMENTS = List.of(
+		"{\"Z\":\"1\"}", "{\"R\":\"2147483649\"}", "{\"R\":\"42.23\"}", "{\"U\":\"Hello\"}", "{\"?\":\"true\"}",
+		"{\"#\":\"01\"}", "{\"#64\":\"AQ==\"}", "{\"T\":\"1970-01-01\"}", "{\"@\":\"SRID=4326;POINT(12.994823 55.612191)\"}",
+		"{\"[]\":[{\"Z\":\"1\"}]}", "{\"{}\":{\"a\":{\"Z\":\"1\"}}}"
+	);
+
+	private static final int CHANNEL_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Direct buffers used to stage output for {@link #writeValue(WritableByteChannel, Object)}, so that the channel
+	 * doesn't need to copy it into a temporary direct buffer of its own. The buffers are shared by all threads instead
+	 * of being owned by one, as virtual threads are short-lived and would each allocate a buffer that is only freed
+	 * after a garbage collection. The pool is bounded: Writers beyond its size allocate a buffer of their own, which
+	 * is dropped afterwards if the pool is full again.
+	 */
+	private static final BlockingQueue<ByteBuffer> CHANNEL_BUFFERS = new ArrayBlockingQueue<>(
+		2 * Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Encodings for binary values.
+	 */
+	public enum BinaryEncoding {
+
+		/**
+		 * Uppercase hex digits with the {@code #} sigil, the default.
+		 */
+		HEX,
+
+		/**
+		 * Base64 with padding and without line feeds, with the {@code #64} sigil. Needs a third less space than
+		 * {@link #HEX}, but both sides must support it.
+		 */
+		BASE64
+	}
+
 	/**
 	 * Construct a codec with strict mode enabled/disabled depending on {@code strictModeEnabled}. When strict
 	 * mode is enabled, values are <em>always</em> paired with their type whereas when disabled some type information
@@ -55,11 +134,26 @@ public class JoltCodec extends ObjectMapper {
 	 * @param strictModeEnabled {@code true} to enable strict mode, {@code false} to disable strict mode.
 	 */
 	public JoltCodec(boolean strictModeEnabled) {
+		this(strictModeEnabled, BinaryEncoding.HEX);
+	}
+
+	/**
+	 * Construct a codec with strict mode enabled/disabled and the given encoding for binary values. The encoding only
+	 * affects writing, binary values are always decoded according to their sigil.
+	 *
+	 * @param strictModeEnabled {@code true} to enable strict mode, {@code false} to disable strict mode.
+	 * @param binaryEncoding    The encoding used to write binary values
+	 */
+	public JoltCodec(boolean strictModeEnabled, BinaryEncoding binaryEncoding) {
+		super(new JoltRecordingJsonFactory(strictModeEnabled));
 		if (strictModeEnabled) {
 			registerModules(JoltModule.STRICT.getInstance());
 		} else {
 			registerModules(JoltModule.DEFAULT.getInstance());
 		}
+		if (binaryEncoding == BinaryEncoding.BASE64) {
+			registerModules(JoltModule.BASE64_BINARY.getInstance());
+		}
 
 		StdTypeResolverBuilder resolver = new StdTypeResolverBuilder() {
 
@@ -109,28 +203,230 @@ public class JoltCodec extends ObjectMapper {
 		this(false);
 	}
 
+	/**
+	 * Creates a writer for one response that writes each map and property key only once and refers to it by index
+	 * afterwards, see {@link JoltKeyDictionary}. All values of the response must be written with the returned writer,
+	 * in order and from one thread.
+	 *
+	 * @return A writer with a new key dictionary
+	 */
+	public ObjectWriter writerWithKeyDictionary() {
+		return writer().withAttribute(JoltKeyDictionary.class, new JoltKeyDictionary());
+	}
+
+	/**
+	 * Creates a reader for one response written by {@link #writerWithKeyDictionary()}. All values of the response must
+	 * be read with the returned reader, in order and from one thread.
+	 *
+	 * @param valueType The type to decode into
+	 * @return A reader with a new key dictionary
+	 */
+	public ObjectReader readerWithKeyDictionary(Class<?> valueType) {
+		return readerFor(valueType).withAttribute(JoltKeyDictionary.class, new JoltKeyDictionary());
+	}
+
+	/**
+	 * Creates a writer that writes nodes and relationships from the given cache if possible and adds them to it
+	 * otherwise, see {@link JoltEntityCache}. The cache can only be used with one codec, as the encoded entities
+	 * depend on its mode. Writers with a key dictionary or a pretty printer bypass the cache.
+	 *
+	 * @param cache The cache to use
+	 * @return A writer using the given cache
+	 * @throws IllegalArgumentException if the cache is already used with another codec or if this codec indents its
+	 *                                  output
+	 */
+	public ObjectWriter writerWithEntityCache(JoltEntityCache cache) {
+
+		if (isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+			throw new IllegalArgumentException("Indented output cannot be cached.");
+		}
+		cache.bindTo(this);
+		return writer().withAttribute(JoltEntityCache.class, cache);
+	}
+
+	/**
+	 * Creates a reader for untrusted input that fails with a {@link com.fasterxml.jackson.core.JsonProcessingException}
+	 * as soon as the input exceeds one of the given limits. Each call creates a new parser factory, so the returned
+	 * reader should be created once and reused, like any other reader it is immutable and thread-safe. Input from a
+	 * {@link java.io.DataInput} is not supported.
+	 *
+	 * @param valueType The type to decode into
+	 * @param limits    The limits to enforce
+	 * @return A reader enforcing the given limits
+	 */
+	public ObjectReader readerWithLimits(Class<?> valueType, JoltDecodingLimits limits) {
+		return readerFor(valueType).with(new JoltLimitingJsonFactory((JoltRecordingJsonFactory) getFactory(), limits));
+	}
+
+	/**
+	 * Writes the value as UTF-8 to the given channel. The output is staged in a pooled direct buffer and written to the
+	 * channel whenever that buffer is full, without materializing the whole document. The channel is not closed.
+	 *
+	 * @param channel The target channel, must be in blocking mode
+	 * @param value   The value to write
+	 * @throws IOException                   if the value cannot be encoded or written to the channel
+	 * @throws IllegalBlockingModeException if the channel is in non-blocking mode
+	 */
+	public void writeValue(WritableByteChannel channel, Object value) throws IOException {
+
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalBlockingModeException();
+		}
+
+		var pooledBuffer = CHANNEL_BUFFERS.poll();
+		var buffer = pooledBuffer == null ? ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE) : pooledBuffer;
+		try (var out = new JoltByteBufferOutputStream(buffer::clear, chunk -> {
+			while (chunk.hasRemaining()) {
+				channel.write(chunk);
+			}
+		})) {
+			writeValue(out, value);
+		} finally {
+			CHANNEL_BUFFERS.offer(buffer.clear());
+		}
+	}
+
+	/**
+	 * Writes the value as UTF-8 into buffers taken from the given supplier, usually a pool of direct buffers that are
+	 * handed to the network layer afterwards. Each buffer is filled from its position up to its limit. The returned
+	 * buffers are ready to be read: Their remaining bytes are the encoded value, in order. Buffers taken from the
+	 * supplier are not returned if encoding fails.
+	 *
+	 * @param value   The value to write
+	 * @param buffers Supplies buffers with remaining space, must not return {@literal null}
+	 * @return The buffers containing the encoded value, empty for no output
+	 * @throws IOException if the value cannot be encoded
+	 */
+	public List<ByteBuffer> writeValueAsByteBuffers(Object value, Supplier<ByteBuffer> buffers) throws IOException {
+
+		var result = new ArrayList<ByteBuffer>();
+		try (var out = new JoltByteBufferOutputStream(buffers, result::add)) {
+			writeValue(out, value);
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves the serializers and deserializers for all types covered by a {@link Sigil} and runs a couple of
+	 * representative values through them, so that the caches of this codec are populated before the first real
+	 * request. Entities (nodes, relationships and paths) can only be resolved by their interface, as their
+	 * implementations are provided by the database.
+	 *
+	 * @return This codec
+	 * @throws IllegalStateException if the codec cannot handle one of the warm-up values
+	 */
+	public JoltCodec warmUp() {
+
+		for (Sigil sigil : Sigil.values()) {
+			for (Class<?> type : sigil.getTypes()) {
+				writerFor(type);
+				readerFor(type);
+			}
+		}
+
+		try {
+			for (Object value : WARM_UP_VALUES) {
+				writeValueAsBytes(value);
+			}
+			for (String document : WARM_UP_DOCUMENTS) {
+				readValue(document, Object.class);
+			}
+			// Durations share their sigil with temporals and are only recognized when asked for explicitly
+			readValue("{\"T\":\"PT1H\"}", TemporalAmount.class);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not warm up codec", e);
+		}
+		return this;
+	}
+
 	private static class JoltAsWrapperTypeDeserializer extends AsWrapperTypeDeserializer {
 
-		public JoltAsWrapperTypeDeserializer(JavaType bt, TypeIdResolver idRes, String typePropertyName, boolean typeIdVisible, JavaType defaultImpl) {
+		/**
+		 * The deserializers for each sigil, indexed by ordinal and resolved on first use. Jackson shares this type
+		 * deserializer between all threads of the mapper, so the deserializers must be published safely: The atomic
+		 * array makes a deserializer and everything set up in its {@code createContextual} and {@code resolve}
+		 * visible to each thread reading it. Two threads resolving the same sigil concurrently may both store an
+		 * equivalent deserializer, which is harmless.
+		 */
+		private final AtomicReferenceArray<JsonDeserializer<Object>> deserializers;
+
+		JoltAsWrapperTypeDeserializer(JavaType bt, TypeIdResolver idRes, String typePropertyName, boolean typeIdVisible, JavaType defaultImpl) {
 			super(bt, idRes, typePropertyName, typeIdVisible, defaultImpl);
+			this.deserializers = new AtomicReferenceArray<>(Sigil.values().length);
+		}
+
+		private JoltAsWrapperTypeDeserializer(JoltAsWrapperTypeDeserializer src, BeanProperty property) {
+			super(src, property);
+			this.deserializers = new AtomicReferenceArray<>(Sigil.values().length);
+		}
+
+		@Override
+		public TypeDeserializer forProperty(BeanProperty prop) {
+			return (prop == _property) ? this : new JoltAsWrapperTypeDeserializer(this, prop);
+		}
+
+		@Override
+		protected Object _deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+
+			JsonToken t = p.currentToken();
+			if (t == JsonToken.START_OBJECT) {
+				if (p.nextToken() != JsonToken.FIELD_NAME) {
+					ctxt.reportWrongTokenException(baseType(), JsonToken.FIELD_NAME,
+						"need JSON String that contains type id (for subtype of " + baseTypeName() + ")");
+				}
+			} else if (t != JsonToken.FIELD_NAME) {
+				ctxt.reportWrongTokenException(baseType(), JsonToken.START_OBJECT,
+					"need JSON Object to contain As.WRAPPER_OBJECT type information for class " + baseTypeName());
+			}
+
+			JsonDeserializer<Object> deserializer = findDeserializer(ctxt, p.getText());
+			p.nextToken();
+			Object value = deserializer.deserialize(p, ctxt);
+
+			if (p.nextToken() != JsonToken.END_OBJECT) {
+				ctxt.reportWrongTokenException(baseType(), JsonToken.END_OBJECT,
+					"expected closing END_OBJECT after type information and deserialized value");
+			}
+			return value;
 		}
 
-		protected Object _deserialize(JsonParser p, DeserializationContext ctxt) throws
-			IOException {
+		private JsonDeserializer<Object> findDeserializer(DeserializationContext ctxt, String typeId) throws IOException {
+
+			Sigil sigil;
+			try {
+				sigil = Sigil.ofLiteral(typeId);
+			} catch (IllegalArgumentException e) {
+				throw ctxt.invalidTypeIdException(_baseType, typeId, e.getMessage());
+			}
+
+			JsonDeserializer<Object> deserializer = deserializers.get(sigil.ordinal());
+			if (deserializer == null) {
+				deserializer = ctxt.findContextualValueDeserializer(resolveType(ctxt, sigil, typeId), _property);
+				deserializers.set(sigil.ordinal(), deserializer);
+			}
+			return deserializer;
+		}
+
+		private JavaType resolveType(DeserializationContext ctxt, Sigil sigil, String typeId) throws IOException {
+
+			// The requested type takes precedence if the sigil supports it, for example Reader for strings
+			if (sigil.isDecodableAs(_baseType.getRawClass())) {
+				return _baseType;
+			}
+
+			JavaType type = JoltTypeIdResolver.javaTypeOf(sigil);
+			if (_baseType.getClass() != type.getClass() || type.hasGenericTypes()) {
+				return type;
+			}
+
 			try {
-				return super._deserialize(p, ctxt);
-			} catch (InvalidTypeIdException e) {
-
-				// Try again with temporal amount
-				if (Sigil.ofLiteral(p.getText()) == Sigil.TIME) {
-					TokenBuffer tb = new TokenBuffer(p.getCodec(), false);
-					tb.writeStartObject();
-					tb.writeFieldName(Sigil.TEMPORAL_AMOUNT.getValue());
-					p = JsonParserSequence.createFlattened(false, tb.asParser(p), p);
-					p.nextToken();
-					return super._deserialize(p, ctxt);
+				return ctxt.constructSpecializedType(_baseType, type.getRawClass());
+			} catch (IllegalArgumentException e) {
+				// Jolt uses T for both temporal amounts and actual temporals
+				if (sigil == Sigil.TIME) {
+					return resolveType(ctxt, Sigil.TEMPORAL_AMOUNT, typeId);
 				}
-				throw e;
+				throw ctxt.invalidTypeIdException(_baseType, typeId, e.getMessage());
 			}
 		}
 	}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Adler32;
+
+/**
+ * Preset dictionary for compressing Jolt with {@link JoltDeflaterOutputStream} and {@link JoltInflaterInputStream}. It
+ * contains the opening of every sigil and, optionally, property keys as they appear in Jolt documents, so that the
+ * compressor can refer to them from the very first byte of a response. Both sides must use a dictionary built from
+ * the same keys in the same order.
+ */
+public final class JoltCompressionDictionary {
+
+	/**
+	 * Deflate can only refer back 32 KiB, anything before that would never be used.
+	 */
+	private static final int MAX_SIZE = 32 * 1024;
+
+	private static final JoltCompressionDictionary SIGILS_ONLY = new JoltCompressionDictionary(List.of());
+
+	private final byte[] bytes;
+
+	private final long adler;
+
+	/**
+	 * @return A dictionary containing only the sigils
+	 */
+	public static JoltCompressionDictionary ofSigils() {
+		return SIGILS_ONLY;
+	}
+
+	/**
+	 * Creates a dictionary with the sigils and the given property keys. Deflate finds the end of the dictionary
+	 * cheapest to refer to, so the most frequent keys should come last. If the keys don't fit into the window of 32
+	 * KiB, the first ones are dropped.
+	 *
+	 * @param propertyKeys The keys to include
+	 * @return A new dictionary
+	 */
+	public static JoltCompressionDictionary of(Collection<String> propertyKeys) {
+		return new JoltCompressionDictionary(propertyKeys);
+	}
+
+	private JoltCompressionDictionary(Collection<String> propertyKeys) {
+
+		var content = new StringBuilder();
+		for (String key : propertyKeys) {
+			content.append('"').append(key).append("\":");
+		}
+
+		// The sigils come last, as they appear in every document
+		for (Sigil sigil : Sigil.values()) {
+			if (sigil == Sigil.NULL || !sigil.getValue().equals(sigil.getAliasedValueOrValue())) {
+				continue;
+			}
+			content.append("{\"").append(sigil.getValue()).append("\":").append(openingOf(sigil));
+		}
+		content.append("{\"?\":\"true\"}{\"?\":\"false\"}\"},");
+
+		var encoded = content.toString().getBytes(StandardCharsets.UTF_8);
+		this.bytes = encoded.length <= MAX_SIZE ?
+			encoded :
+			Arrays.copyOfRange(encoded, encoded.length - MAX_SIZE, encoded.length);
+
+		var checksum = new Adler32();
+		checksum.update(this.bytes);
+		this.adler = checksum.getValue();
+	}
+
+	private static char openingOf(Sigil sigil) {
+
+		switch (sigil) {
+			case LIST:
+			case NODE:
+			case RELATIONSHIP:
+			case RELATIONSHIP_REVERSED:
+			case PATH:
+				return '[';
+			case MAP:
+				return '{';
+			default:
+				return '"';
+		}
+	}
+
+	byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return The Adler-32 checksum of the dictionary, which is also stored in the compressed stream
+	 */
+	long getAdler() {
+		return adler;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+/**
+ * Limits for decoding untrusted Jolt input, see {@link JoltCodec#readerWithLimits(Class, JoltDecodingLimits)}. All
+ * limits are checked while streaming through the input, so that decoding fails as soon as a limit is exceeded. A
+ * string or binary value read from a stream or reader is stopped once it spans more input than its limit allows,
+ * escapes included, so it is never buffered completely. Keys and values of input given as arrays or strings are
+ * checked once they have been read. Limits are immutable, the {@code with} methods return new instances.
+ */
+public final class JoltDecodingLimits {
+
+	private static final JoltDecodingLimits DEFAULTS = new JoltDecodingLimits(128, 100_000, 1024 * 1024,
+		16 * 1024 * 1024, 64L * 1024 * 1024);
+
+	private static final JoltDecodingLimits UNLIMITED = new JoltDecodingLimits(Integer.MAX_VALUE, Integer.MAX_VALUE,
+		Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	private final int maxDepth;
+
+	private final int maxCollectionSize;
+
+	private final int maxStringLength;
+
+	private final int maxBinaryLength;
+
+	private final long maxInputLength;
+
+	private JoltDecodingLimits(int maxDepth, int maxCollectionSize, int maxStringLength, int maxBinaryLength,
+		long maxInputLength) {
+		this.maxDepth = maxDepth;
+		this.maxCollectionSize = maxCollectionSize;
+		this.maxStringLength = maxStringLength;
+		this.maxBinaryLength = maxBinaryLength;
+		this.maxInputLength = maxInputLength;
+	}
+
+	/**
+	 * @return Limits suitable for parameters of a single request: a depth of 128, 100,000 elements per collection,
+	 * strings of 1 MiB characters, binaries of 16 MiB and 64 MiB of input
+	 */
+	public static JoltDecodingLimits defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * @return Limits that don't restrict anything, to be narrowed with the {@code with} methods
+	 */
+	public static JoltDecodingLimits unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * @param newMaxDepth The maximum number of nested JSON arrays and objects. Each Jolt value is wrapped into an
+	 *                    object holding its sigil, so a list of lists already has a depth of four.
+	 * @return New limits
+	 */
+	public JoltDecodingLimits withMaxDepth(int newMaxDepth) {
+		return new JoltDecodingLimits(requirePositive(newMaxDepth), maxCollectionSize, maxStringLength,
+			maxBinaryLength, maxInputLength);
+	}
+
+	/**
+	 * @param newMaxCollectionSize The maximum number of elements in a JSON array or entries in a JSON object
+	 * @return New limits
+	 */
+	public JoltDecodingLimits withMaxCollectionSize(int newMaxCollectionSize) {
+		return new JoltDecodingLimits(maxDepth, requirePositive(newMaxCollectionSize), maxStringLength,
+			maxBinaryLength, maxInputLength);
+	}
+
+	/**
+	 * @param newMaxStringLength The maximum number of characters of a string or a key
+	 * @return New limits
+	 */
+	public JoltDecodingLimits withMaxStringLength(int newMaxStringLength) {
+		return new JoltDecodingLimits(maxDepth, maxCollectionSize, requirePositive(newMaxStringLength),
+			maxBinaryLength, maxInputLength);
+	}
+
+	/**
+	 * @param newMaxBinaryLength The maximum number of bytes of a decoded binary value
+	 * @return New limits
+	 */
+	public JoltDecodingLimits withMaxBinaryLength(int newMaxBinaryLength) {
+		return new JoltDecodingLimits(maxDepth, maxCollectionSize, maxStringLength,
+			requirePositive(newMaxBinaryLength), maxInputLength);
+	}
+
+	/**
+	 * @param newMaxInputLength The maximum number of bytes, or characters for textual sources, of the whole input
+	 * @return New limits
+	 */
+	public JoltDecodingLimits withMaxInputLength(long newMaxInputLength) {
+
+		if (newMaxInputLength <= 0) {
+			throw new IllegalArgumentException("Limits must be positive.");
+		}
+		return new JoltDecodingLimits(maxDepth, maxCollectionSize, maxStringLength, maxBinaryLength,
+			newMaxInputLength);
+	}
+
+	/**
+	 * @return The maximum number of nested JSON arrays and objects
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return The maximum number of elements in a JSON array or entries in a JSON object
+	 */
+	public int getMaxCollectionSize() {
+		return maxCollectionSize;
+	}
+
+	/**
+	 * @return The maximum number of characters of a string or a key
+	 */
+	public int getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * @return The maximum number of bytes of a decoded binary value
+	 */
+	public int getMaxBinaryLength() {
+		return maxBinaryLength;
+	}
+
+	/**
+	 * @return The maximum number of bytes, or characters for textual sources, of the whole input
+	 */
+	public long getMaxInputLength() {
+		return maxInputLength;
+	}
+
+	private static int requirePositive(int limit) {
+
+		if (limit <= 0) {
+			throw new IllegalArgumentException("Limits must be positive.");
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses Jolt output in the zlib format, primed with a {@link JoltCompressionDictionary}. Read the output with a
+ * {@link JoltInflaterInputStream} using the same dictionary.
+ */
+public final class JoltDeflaterOutputStream extends DeflaterOutputStream {
+
+	private boolean closed;
+
+	/**
+	 * Creates a stream with a dictionary of the sigils and the default compression level.
+	 *
+	 * @param out The stream to write the compressed output to
+	 */
+	public JoltDeflaterOutputStream(OutputStream out) {
+		this(out, JoltCompressionDictionary.ofSigils(), Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out        The stream to write the compressed output to
+	 * @param dictionary The preset dictionary
+	 * @param level      The compression level, see {@link Deflater}
+	 */
+	public JoltDeflaterOutputStream(OutputStream out, JoltCompressionDictionary dictionary, int level) {
+		super(out, createDeflater(dictionary, level), true);
+	}
+
+	private static Deflater createDeflater(JoltCompressionDictionary dictionary, int level) {
+
+		var deflater = new Deflater(level);
+		deflater.setDictionary(dictionary.getBytes());
+		return deflater;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			super.close();
+		} finally {
+			// The deflater has been passed in and is therefore not ended by the super class
+			def.end();
+		}
+	}
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * Snapshots of nodes, relationships and paths that stay usable after their transaction has been closed. A snapshot
+ * contains exactly what Jolt writes: ids, labels, types and properties. It implements the entity interfaces, so that
+ * it is written by the same serializers as the original entity, with the same output. Everything that would need the
+ * database, like traversing relationships or modifying the entity, throws an {@link UnsupportedOperationException}.
+ */
+final class JoltDetachedEntities {
+
+	/**
+	 * Replaces all entities in the given value with their snapshots. Lists and maps are copied if they might contain
+	 * entities, all other values are returned as is, as values returned from the database are immutable or copies.
+	 * Must be called while the transaction of the entities is still open.
+	 *
+	 * @param value The value to detach
+	 * @return A value that can be written outside the transaction
+	 */
+	static Object detach(Object value) {
+
+		if (value instanceof Node) {
+			return detach((Node) value);
+		} else if (value instanceof Relationship) {
+			return detach((Relationship) value);
+		} else if (value instanceof Path) {
+			return detach((Path) value);
+		} else if (value instanceof List) {
+			var list = (List<?>) value;
+			var result = new ArrayList<>(list.size());
+			for (Object element : list) {
+				result.add(detach(element));
+			}
+			return result;
+		} else if (value instanceof Map) {
+			var map = (Map<?, ?>) value;
+			var result = new LinkedHashMap<Object, Object>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				result.put(entry.getKey(), detach(entry.getValue()));
+			}
+			return result;
+		}
+		return value;
+	}
+
+	static Node detach(Node node) {
+
+		if (node instanceof DetachedNode) {
+			return node;
+		}
+		var labels = new ArrayList<Label>();
+		node.getLabels().forEach(labels::add);
+		return new DetachedNode(node.getId(), labels, node.getAllProperties());
+	}
+
+	static Relationship detach(Relationship relationship) {
+
+		if (relationship instanceof DetachedRelationship) {
+			return relationship;
+		}
+		return new DetachedRelationship(relationship.getId(), relationship.getStartNodeId(), relationship.getType(),
+			relationship.getEndNodeId(), relationship.getAllProperties());
+	}
+
+	static Path detach(Path path) {
+
+		if (path instanceof DetachedPath) {
+			return path;
+		}
+		var nodes = new ArrayList<Node>(path.length() + 1);
+		path.nodes().forEach(node -> nodes.add(detach(node)));
+		var relationships = new ArrayList<Relationship>(path.length());
+		path.relationships().forEach(relationship -> relationships.add(detach(relationship)));
+		return new DetachedPath(nodes, relationships);
+	}
+
+	private static UnsupportedOperationException detached() {
+		return new UnsupportedOperationException("Detached entities only provide ids, labels, types and properties.");
+	}
+
+	private abstract static class DetachedEntity implements Entity {
+
+		private final long id;
+
+		private final Map<String, Object> properties;
+
+		DetachedEntity(long id, Map<String, Object> properties) {
+			this.id = id;
+			this.properties = properties == null ? Map.of() : Collections.unmodifiableMap(properties);
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public boolean hasProperty(String key) {
+			return properties.containsKey(key);
+		}
+
+		@Override
+		public Object getProperty(String key) {
+
+			var value = properties.get(key);
+			if (value == null) {
+				throw new NotFoundException("No such property, '" + key + "'.");
+			}
+			return value;
+		}
+
+		@Override
+		public Object getProperty(String key, Object defaultValue) {
+			return properties.getOrDefault(key, defaultValue);
+		}
+
+		@Override
+		public void setProperty(String key, Object value) {
+			throw detached();
+		}
+
+		@Override
+		public Object removeProperty(String key) {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<String> getPropertyKeys() {
+			return properties.keySet();
+		}
+
+		@Override
+		public Map<String, Object> getProperties(String... keys) {
+
+			var result = new LinkedHashMap<String, Object>();
+			for (String key : keys) {
+				var value = properties.get(key);
+				if (value != null) {
+					result.put(key, value);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public Map<String, Object> getAllProperties() {
+			return properties;
+		}
+
+		public void delete() {
+			throw detached();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o != null && o.getClass() == getClass() && ((DetachedEntity) o).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(id);
+		}
+	}
+
+	private static final class DetachedNode extends DetachedEntity implements Node {
+
+		private final List<Label> labels;
+
+		DetachedNode(long id, List<Label> labels, Map<String, Object> properties) {
+			super(id, properties);
+			this.labels = Collections.unmodifiableList(labels);
+		}
+
+		@Override
+		public Iterable<Label> getLabels() {
+			return labels;
+		}
+
+		@Override
+		public boolean hasLabel(Label label) {
+
+			for (Label candidate : labels) {
+				if (candidate.name().equals(label.name())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void addLabel(Label label) {
+			throw detached();
+		}
+
+		@Override
+		public void removeLabel(Label label) {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<Relationship> getRelationships() {
+			throw detached();
+		}
+
+		@Override
+		public boolean hasRelationship() {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<Relationship> getRelationships(RelationshipType... types) {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<Relationship> getRelationships(Direction direction, RelationshipType... types) {
+			throw detached();
+		}
+
+		@Override
+		public boolean hasRelationship(RelationshipType... types) {
+			throw detached();
+		}
+
+		@Override
+		public boolean hasRelationship(Direction direction, RelationshipType... types) {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<Relationship> getRelationships(Direction direction) {
+			throw detached();
+		}
+
+		@Override
+		public boolean hasRelationship(Direction direction) {
+			throw detached();
+		}
+
+		@Override
+		public Relationship getSingleRelationship(RelationshipType type, Direction direction) {
+			throw detached();
+		}
+
+		@Override
+		public Relationship createRelationshipTo(Node otherNode, RelationshipType type) {
+			throw detached();
+		}
+
+		@Override
+		public Iterable<RelationshipType> getRelationshipTypes() {
+			throw detached();
+		}
+
+		@Override
+		public int getDegree() {
+			throw detached();
+		}
+
+		@Override
+		public int getDegree(RelationshipType type) {
+			throw detached();
+		}
+
+		@Override
+		public int getDegree(Direction direction) {
+			throw detached();
+		}
+
+		@Override
+		public int getDegree(RelationshipType type, Direction direction) {
+			throw detached();
+		}
+
+		@Override
+		public String toString() {
+			return "Node[" + getId() + "]";
+		}
+	}
+
+	private static final class DetachedRelationship extends DetachedEntity implements Relationship {
+
+		private final long startNodeId;
+
+		private final RelationshipType type;
+
+		private final long endNodeId;
+
+		DetachedRelationship(long id, long startNodeId, RelationshipType type, long endNodeId,
+			Map<String, Object> properties) {
+			super(id, properties);
+			this.startNodeId = startNodeId;
+			this.type = type;
+			this.endNodeId = endNodeId;
+		}
+
+		@Override
+		public long getStartNodeId() {
+			return startNodeId;
+		}
+
+		@Override
+		public long getEndNodeId() {
+			return endNodeId;
+		}
+
+		@Override
+		public long getOtherNodeId(long id) {
+
+			if (id == startNodeId) {
+				return endNodeId;
+			} else if (id == endNodeId) {
+				return startNodeId;
+			}
+			throw new NotFoundException("Node[" + id + "] not connected to this relationship[" + getId() + "]");
+		}
+
+		@Override
+		public RelationshipType getType() {
+			return type;
+		}
+
+		@Override
+		public boolean isType(RelationshipType type) {
+			return this.type.name().equals(type.name());
+		}
+
+		@Override
+		public Node getStartNode() {
+			throw detached();
+		}
+
+		@Override
+		public Node getEndNode() {
+			throw detached();
+		}
+
+		@Override
+		public Node getOtherNode(Node node) {
+			throw detached();
+		}
+
+		@Override
+		public Node[] getNodes() {
+			throw detached();
+		}
+
+		@Override
+		public String toString() {
+			return "(" + startNodeId + ")-[" + type.name() + "," + getId() + "]->(" + endNodeId + ")";
+		}
+	}
+
+	private static final class DetachedPath implements Path {
+
+		private final List<Node> nodes;
+
+		private final List<Relationship> relationships;
+
+		DetachedPath(List<Node> nodes, List<Relationship> relationships) {
+			this.nodes = Collections.unmodifiableList(nodes);
+			this.relationships = Collections.unmodifiableList(relationships);
+		}
+
+		@Override
+		public Node startNode() {
+			return nodes.get(0);
+		}
+
+		@Override
+		public Node endNode() {
+			return nodes.get(nodes.size() - 1);
+		}
+
+		@Override
+		public Relationship lastRelationship() {
+			return relationships.isEmpty() ? null : relationships.get(relationships.size() - 1);
+		}
+
+		@Override
+		public Iterable<Relationship> relationships() {
+			return relationships;
+		}
+
+		@Override
+		public Iterable<Relationship> reverseRelationships() {
+			return reversed(relationships);
+		}
+
+		@Override
+		public Iterable<Node> nodes() {
+			return nodes;
+		}
+
+		@Override
+		public Iterable<Node> reverseNodes() {
+			return reversed(nodes);
+		}
+
+		@Override
+		public int length() {
+			return relationships.size();
+		}
+
+		@Override
+		public Iterator<Entity> iterator() {
+
+			return new Iterator<>() {
+
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return index < nodes.size() + relationships.size();
+				}
+
+				@Override
+				public Entity next() {
+
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					var i = index++;
+					return i % 2 == 0 ? nodes.get(i / 2) : relationships.get(i / 2);
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "Path" + Arrays.toString(nodes.toArray());
+		}
+
+		private static <T> List<T> reversed(List<T> list) {
+
+			var result = new ArrayList<>(list);
+			Collections.reverse(result);
+			return result;
+		}
+	}
+
+	private JoltDetachedEntities() {
+	}
+}
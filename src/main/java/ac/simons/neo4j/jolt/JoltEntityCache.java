@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListener;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DatabindContext;
+
+/**
+ * A bounded cache of encoded nodes and relationships of one database, keyed by their id. Writers created by
+ * {@link JoltCodec#writerWithEntityCache(JoltEntityCache)} write each cached entity as is, without looking at its
+ * labels, type or properties again. The least recently used entity is evicted once the cache is full.
+ * <p>
+ * A transaction event listener evicts all entities whose labels or properties have been changed or that have been
+ * deleted, after the transaction has been committed. Encodings overlapping such a commit are not cached, as they
+ * might have seen the old state. Entities changed by a transaction that is still open or that is rolled back must
+ * not be written with the cache, so it should only be used with read-only transactions.
+ * <p>
+ * A cache is thread-safe and is meant to be shared by all writers of one codec. Entities are encoded with the
+ * factory of that codec and the generator features and character escapes of the first generator using the cache.
+ * Generators with different settings or with a pretty printer bypass the cache, as do writers with a
+ * {@link JoltKeyDictionary}, so that the output of a writer never depends on whether an entity has been cached.
+ */
+public final class JoltEntityCache implements AutoCloseable {
+
+	/**
+	 * The default maximum number of entities.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10_000;
+
+	private final Map<Long, SerializableString> fragments;
+
+	private final AtomicReference<Format> format = new AtomicReference<>();
+
+	private volatile JoltCodec codec;
+
+	/**
+	 * A plain copy of the codec's factory, so that encoding fragments doesn't emit {@link JoltEvents}.
+	 */
+	private volatile JsonFactory fragmentFactory;
+
+	private final TransactionEventListener<Set<Long>> listener = new InvalidationListener();
+
+	private DatabaseManagementService managementService;
+
+	private String databaseName;
+
+	/**
+	 * Incremented whenever entities are evicted because of a commit, guarded by {@code this}.
+	 */
+	private long generation;
+
+	JoltEntityCache(int maxSize) {
+
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Maximum size must be positive.");
+		}
+		this.fragments = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, SerializableString> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Creates a cache and registers its transaction event listener.
+	 *
+	 * @param managementService The management service of the database
+	 * @param databaseName      The name of the database the cached entities belong to
+	 * @param maxSize           The maximum number of entities to cache
+	 * @return A new cache, to be closed when the database is shut down or the cache is no longer used
+	 */
+	public static JoltEntityCache register(DatabaseManagementService managementService, String databaseName,
+		int maxSize) {
+
+		var cache = new JoltEntityCache(maxSize);
+		managementService.registerTransactionEventListener(databaseName, cache.listener);
+		cache.managementService = managementService;
+		cache.databaseName = databaseName;
+		return cache;
+	}
+
+	/**
+	 * @return The number of cached entities
+	 */
+	public synchronized int size() {
+		return fragments.size();
+	}
+
+	/**
+	 * Evicts all entities.
+	 */
+	public synchronized void clear() {
+		fragments.clear();
+		++generation;
+	}
+
+	/**
+	 * Unregisters the transaction event listener and evicts all entities.
+	 */
+	@Override
+	public void close() {
+
+		if (managementService != null) {
+			managementService.unregisterTransactionEventListener(databaseName, listener);
+			managementService = null;
+		}
+		clear();
+	}
+
+	static JoltEntityCache of(DatabindContext context, JsonGenerator generator) {
+
+		var cache = (JoltEntityCache) context.getAttribute(JoltEntityCache.class);
+		if (cache == null || context.getAttribute(JoltKeyDictionary.class) != null
+			|| generator.getPrettyPrinter() != null) {
+			return null;
+		}
+		var generatorFormat = new Format(generator);
+		var cacheFormat = cache.format.updateAndGet(current -> current == null ? generatorFormat : current);
+		return cacheFormat.equals(generatorFormat) ? cache : null;
+	}
+
+	synchronized void bindTo(JoltCodec owner) {
+
+		if (codec == null) {
+			fragmentFactory = owner.getFactory().rebuild().build();
+			codec = owner;
+		} else if (codec != owner) {
+			throw new IllegalArgumentException("The cache is already used with another codec.");
+		}
+	}
+
+	SerializableString getNode(long id, Fragment fragment) throws IOException {
+		return get(nodeKey(id), fragment);
+	}
+
+	SerializableString getRelationship(long id, Fragment fragment) throws IOException {
+		return get(relationshipKey(id), fragment);
+	}
+
+	private SerializableString get(long key, Fragment fragment) throws IOException {
+
+		SerializableString cached;
+		long expectedGeneration;
+		synchronized (this) {
+			cached = fragments.get(key);
+			expectedGeneration = generation;
+		}
+		if (cached != null) {
+			return cached;
+		}
+
+		var out = new StringWriter();
+		try (var generator = fragmentFactory.createGenerator(out)) {
+			format.get().applyTo(generator);
+			fragment.writeTo(generator);
+		}
+		var encoded = new SerializedString(out.toString());
+		synchronized (this) {
+			if (generation == expectedGeneration) {
+				fragments.put(key, encoded);
+			}
+		}
+		return encoded;
+	}
+
+	private synchronized void evict(Set<Long> keys) {
+
+		fragments.keySet().removeAll(keys);
+		++generation;
+	}
+
+	/**
+	 * Nodes and relationships have separate ids, relationships are stored under negative keys.
+	 */
+	private static long nodeKey(long id) {
+		return id;
+	}
+
+	private static long relationshipKey(long id) {
+		return -id - 1;
+	}
+
+	/**
+	 * The settings of a generator that change how an entity is encoded.
+	 */
+	private static final class Format {
+
+		private final int featureMask;
+
+		private final CharacterEscapes characterEscapes;
+
+		private final int highestNonEscapedChar;
+
+		Format(JsonGenerator generator) {
+			this.featureMask = generator.getFeatureMask();
+			this.characterEscapes = generator.getCharacterEscapes();
+			this.highestNonEscapedChar = generator.getHighestEscapedChar();
+		}
+
+		void applyTo(JsonGenerator generator) {
+
+			generator.overrideStdFeatures(featureMask, ~0);
+			generator.setCharacterEscapes(characterEscapes);
+			generator.setHighestNonEscapedChar(highestNonEscapedChar);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Format)) {
+				return false;
+			}
+			var other = (Format) o;
+			return featureMask == other.featureMask && characterEscapes == other.characterEscapes
+				&& highestNonEscapedChar == other.highestNonEscapedChar;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(featureMask, System.identityHashCode(characterEscapes), highestNonEscapedChar);
+		}
+	}
+
+	/**
+	 * Writes the encoding of one entity.
+	 */
+	@FunctionalInterface
+	interface Fragment {
+
+		void writeTo(JsonGenerator generator) throws IOException;
+	}
+
+	/**
+	 * Collects the changed entities before the commit, while the transaction data can still be read, and evicts them
+	 * afterwards.
+	 */
+	private final class InvalidationListener implements TransactionEventListener<Set<Long>> {
+
+		@Override
+		public Set<Long> beforeCommit(TransactionData data, Transaction transaction,
+			GraphDatabaseService databaseService) {
+
+			var keys = new HashSet<Long>();
+			for (Node node : data.deletedNodes()) {
+				keys.add(nodeKey(node.getId()));
+			}
+			for (LabelEntry entry : data.assignedLabels()) {
+				keys.add(nodeKey(entry.node().getId()));
+			}
+			for (LabelEntry entry : data.removedLabels()) {
+				keys.add(nodeKey(entry.node().getId()));
+			}
+			for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+				keys.add(nodeKey(entry.entity().getId()));
+			}
+			for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+				keys.add(nodeKey(entry.entity().getId()));
+			}
+			for (Relationship relationship : data.deletedRelationships()) {
+				keys.add(relationshipKey(relationship.getId()));
+			}
+			for (PropertyEntry<Relationship> entry : data.assignedRelationshipProperties()) {
+				keys.add(relationshipKey(entry.entity().getId()));
+			}
+			for (PropertyEntry<Relationship> entry : data.removedRelationshipProperties()) {
+				keys.add(relationshipKey(entry.entity().getId()));
+			}
+			return keys;
+		}
+
+		@Override
+		public void afterCommit(TransactionData data, Set<Long> keys, GraphDatabaseService databaseService) {
+
+			if (keys != null && !keys.isEmpty()) {
+				evict(keys);
+			}
+		}
+
+		@Override
+		public void afterRollback(TransactionData data, Set<Long> keys, GraphDatabaseService databaseService) {
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.util.Locale;
+import java.util.Set;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events emitted by the parsers and generators of a {@link JoltCodec}, see
+ * {@link JoltRecordingJsonFactory}. An encode or decode event spans the lifetime of one generator or parser, which is
+ * one top-level value for the {@code writeValue} and {@code readValue} methods and all records for a
+ * {@link JoltRecordWriter} or {@link JoltRecordReader}. Large value events report single Jolt values, that is objects
+ * keyed by a sigil, whose encoded size exceeds the {@code sizeThreshold} setting.
+ * <p>
+ * Encode and decode events are recorded without a stack trace. Large value events are disabled by default and have
+ * to be enabled explicitly, for example with {@code jfr configure} or {@link jdk.jfr.Recording#enable(String)}.
+ */
+final class JoltEvents {
+
+	/**
+	 * The default size from which on values are reported, 1 MiB.
+	 */
+	static final long DEFAULT_SIZE_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The threshold of the current recordings, so that the size of values can be checked without creating an event.
+	 */
+	static volatile long sizeThreshold = DEFAULT_SIZE_THRESHOLD;
+
+	@Name("ac.simons.neo4j.jolt.Encode")
+	@Label("Jolt Encode")
+	@Category({ "Neo4j", "Jolt" })
+	@Description("Values written by a generator of a Jolt codec")
+	@StackTrace(false)
+	static final class EncodeEvent extends Event {
+
+		@Label("Strict Mode")
+		boolean strict;
+
+		@Label("Bytes")
+		@Description("Bytes written, or characters for textual targets")
+		@DataAmount
+		long bytes;
+
+		@Label("Rows")
+		@Description("Number of top-level values")
+		long rows;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Relationships")
+		long relationships;
+
+		@Label("Paths")
+		long paths;
+	}
+
+	@Name("ac.simons.neo4j.jolt.Decode")
+	@Label("Jolt Decode")
+	@Category({ "Neo4j", "Jolt" })
+	@Description("Values read by a parser of a Jolt codec")
+	@StackTrace(false)
+	static final class DecodeEvent extends Event {
+
+		@Label("Strict Mode")
+		boolean strict;
+
+		@Label("Bytes")
+		@Description("Bytes read, or characters for textual sources")
+		@DataAmount
+		long bytes;
+
+		@Label("Rows")
+		@Description("Number of top-level values")
+		long rows;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Relationships")
+		long relationships;
+
+		@Label("Paths")
+		long paths;
+	}
+
+	@Name("ac.simons.neo4j.jolt.LargeValue")
+	@Label("Jolt Large Value")
+	@Category({ "Neo4j", "Jolt" })
+	@Description("A single Jolt value exceeding the size threshold")
+	@Enabled(false)
+	static final class LargeValueEvent extends Event {
+
+		@Label("Encoding")
+		@Description("True if the value has been written, false if it has been read")
+		boolean encoding;
+
+		@Label("Sigil")
+		String sigil;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Depth")
+		@Description("Number of enclosing JSON arrays and objects")
+		int depth;
+
+		@Name("sizeThreshold")
+		@Label("Size Threshold")
+		@Description("Values smaller than this are not reported, for example 64 kB or 1 MB")
+		@SettingDefinition
+		boolean sizeThreshold(SizeThreshold threshold) {
+			return bytes >= threshold.value;
+		}
+	}
+
+	/**
+	 * The size threshold for {@link LargeValueEvent}, given in bytes with an optional unit of {@code kB}, {@code MB}
+	 * or {@code GB}. If several recordings are running, the smallest threshold wins.
+	 */
+	static final class SizeThreshold extends SettingControl {
+
+		private long value = DEFAULT_SIZE_THRESHOLD;
+
+		@Override
+		public String combine(Set<String> values) {
+
+			var result = -1L;
+			var text = (String) null;
+			for (String candidate : values) {
+				var parsed = parse(candidate);
+				if (result < 0 || parsed < result) {
+					result = parsed;
+					text = candidate;
+				}
+			}
+			return text == null ? Long.toString(DEFAULT_SIZE_THRESHOLD) : text;
+		}
+
+		@Override
+		public void setValue(String text) {
+			this.value = parse(text);
+			sizeThreshold = this.value;
+		}
+
+		@Override
+		public String getValue() {
+			return Long.toString(value);
+		}
+
+		static long parse(String text) {
+
+			var normalized = text.trim().toLowerCase(Locale.ROOT);
+			var end = 0;
+			while (end < normalized.length() && Character.isDigit(normalized.charAt(end))) {
+				++end;
+			}
+			if (end == 0) {
+				return DEFAULT_SIZE_THRESHOLD;
+			}
+			var number = Long.parseLong(normalized.substring(0, end));
+			switch (normalized.substring(end).trim()) {
+				case "":
+				case "b":
+					return number;
+				case "kb":
+					return number * 1024;
+				case "mb":
+					return number * 1024 * 1024;
+				case "gb":
+					return number * 1024 * 1024 * 1024;
+				default:
+					return DEFAULT_SIZE_THRESHOLD;
+			}
+		}
+	}
+
+	private JoltEvents() {
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.id.IdGeneratorFactory;
+import org.neo4j.internal.id.IdType;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+
+/**
+ * Exports nodes and relationships in parallel into segment files of newline-delimited Jolt records, see
+ * {@link JoltRecordWriter}. The id space of each kind of entity, up to the high id of the database's id generator,
+ * is split into as many contiguous ranges as there are threads. Each range is exported by its own worker, in its own
+ * transaction, into its own segment file. Workers look up the ids of their range one by one and skip unused ids, so
+ * that the store is read only once, and in parallel. Entities created during the export might not be included.
+ * <p>
+ * Nodes with a given label are exported from the label index instead: Each worker reads the index entries of the label
+ * and keeps those in its own range, so that the node store is only read for nodes having the label. The label index
+ * is read once per worker, which is cheap compared to the node store, as long as the label is not on most nodes.
+ * <p>
+ * The export fails as soon as one of the workers fails, the other workers are cancelled. Segments written so far are
+ * left in the directory, but no manifest is written.
+ * <p>
+ * After all segments have been written, a manifest named {@value #MANIFEST_FILE_NAME} is written into the same
+ * directory. It is plain JSON and lists the segments with their kind, id range and number of records. As each
+ * worker uses its own transaction, the export is not a consistent snapshot of a database that is written to
+ * concurrently.
+ */
+public final class JoltExporter {
+
+	/**
+	 * The name of the manifest file.
+	 */
+	public static final String MANIFEST_FILE_NAME = "manifest.json";
+
+	/**
+	 * The kinds of entities that are exported.
+	 */
+	public enum Kind {
+
+		/**
+		 * Segments containing nodes.
+		 */
+		NODES,
+
+		/**
+		 * Segments containing relationships.
+		 */
+		RELATIONSHIPS
+	}
+
+	/**
+	 * One segment file of an export.
+	 */
+	public static final class Segment {
+
+		private final String fileName;
+
+		private final Kind kind;
+
+		private final long fromId;
+
+		private final long toId;
+
+		private final long recordCount;
+
+		Segment(String fileName, Kind kind, long fromId, long toId, long recordCount) {
+			this.fileName = fileName;
+			this.kind = kind;
+			this.fromId = fromId;
+			this.toId = toId;
+			this.recordCount = recordCount;
+		}
+
+		/**
+		 * @return The name of the segment file, relative to the export directory
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * @return The kind of entities in this segment
+		 */
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return The smallest id this segment covers, inclusive
+		 */
+		public long getFromId() {
+			return fromId;
+		}
+
+		/**
+		 * @return The largest id this segment covers, exclusive
+		 */
+		public long getToId() {
+			return toId;
+		}
+
+		/**
+		 * @return The number of records in this segment
+		 */
+		public long getRecordCount() {
+			return recordCount;
+		}
+	}
+
+	private final GraphDatabaseService database;
+
+	private final JoltCodec codec;
+
+	private final int parallelism;
+
+	/**
+	 * @param database    The database to export, must be an embedded database providing its internal API
+	 * @param codec       The codec used to write the segments
+	 * @param parallelism The number of worker threads and segments per kind of entity
+	 */
+	public JoltExporter(GraphDatabaseService database, JoltCodec codec, int parallelism) {
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		this.database = database;
+		this.codec = codec;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Exports all nodes and all relationships.
+	 *
+	 * @param directory The target directory, must exist
+	 * @return The segments that have been written, in the order of the manifest
+	 * @throws IOException if a segment or the manifest cannot be written
+	 */
+	public List<Segment> export(Path directory) throws IOException {
+
+		return export(directory, List.of(
+			new Source(Kind.NODES, IdType.NODE, lookUp(Transaction::getNodeById)),
+			new Source(Kind.RELATIONSHIPS, IdType.RELATIONSHIP, lookUp(Transaction::getRelationshipById))
+		));
+	}
+
+	/**
+	 * Exports all nodes with the given label, without any relationships. The nodes are found through the label index.
+	 *
+	 * @param directory The target directory, must exist
+	 * @param label     The label of the nodes to export
+	 * @return The segments that have been written, in the order of the manifest
+	 * @throws IOException if a segment or the manifest cannot be written
+	 */
+	public List<Segment> export(Path directory, Label label) throws IOException {
+
+		return export(directory, List.of(
+			new Source(Kind.NODES, IdType.NODE, scan(label))
+		));
+	}
+
+	private List<Segment> export(Path directory, List<Source> sources) throws IOException {
+
+		var segments = new ArrayList<Segment>();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		var completionService = new ExecutorCompletionService<Segment>(executor);
+		var futures = new ArrayList<Future<Segment>>();
+		try {
+			for (Source source : sources) {
+				var upperBound = upperBoundOfIds(source.idType);
+				var rangeSize = Math.max(1, (upperBound + parallelism - 1) / parallelism);
+				for (int i = 0; i < parallelism; ++i) {
+					var fileName = String.format("%s-%04d.jolt", source.kind.name().toLowerCase(Locale.ROOT), i);
+					var fromId = Math.min(upperBound, i * rangeSize);
+					var toId = i == parallelism - 1 ? upperBound : Math.min(upperBound, fromId + rangeSize);
+					futures.add(completionService.submit(
+						() -> exportRange(directory.resolve(fileName), source, fromId, toId)));
+				}
+			}
+
+			// Wait in the order of completion, so that the first failure is seen without waiting for other workers
+			for (int i = 0; i < futures.size(); ++i) {
+				completionService.take().get();
+			}
+			for (Future<Segment> future : futures) {
+				segments.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while exporting.", e);
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Could not export segment.", cause);
+		} finally {
+			futures.forEach(future -> future.cancel(true));
+			executor.shutdownNow();
+		}
+
+		writeManifest(directory.resolve(MANIFEST_FILE_NAME), segments);
+		return segments;
+	}
+
+	/**
+	 * @return The high id of the given type, all entities have smaller ids
+	 */
+	private long upperBoundOfIds(IdType idType) {
+
+		return ((GraphDatabaseAPI) database).getDependencyResolver()
+			.resolveDependency(IdGeneratorFactory.class)
+			.get(idType)
+			.getHighId();
+	}
+
+	private Segment exportRange(Path file, Source source, long fromId, long toId) throws IOException {
+
+		long recordCount;
+		try (var tx = database.beginTx();
+			var writer = new JoltRecordWriter(codec, Files.newOutputStream(file))) {
+			recordCount = source.scan.export(tx, fromId, toId, writer);
+		}
+		return new Segment(file.getFileName().toString(), source.kind, fromId, toId, recordCount);
+	}
+
+	/**
+	 * @return A scan looking up each id of a range
+	 */
+	private static RangeScan lookUp(BiFunction<Transaction, Long, ? extends Entity> lookup) {
+
+		return (tx, fromId, toId, writer) -> {
+			var recordCount = 0L;
+			for (long id = fromId; id < toId; ++id) {
+				checkInterrupted();
+				Entity entity;
+				try {
+					entity = lookup.apply(tx, id);
+				} catch (NotFoundException e) {
+					// Unused or deleted id
+					continue;
+				}
+				writer.write(entity);
+				++recordCount;
+			}
+			return recordCount;
+		};
+	}
+
+	/**
+	 * @return A scan of the label index, keeping the nodes of a range
+	 */
+	private static RangeScan scan(Label label) {
+
+		return (tx, fromId, toId, writer) -> {
+			var recordCount = 0L;
+			try (var nodes = tx.findNodes(label)) {
+				while (nodes.hasNext()) {
+					checkInterrupted();
+					Node node = nodes.next();
+					if (node.getId() >= fromId && node.getId() < toId) {
+						writer.write(node);
+						++recordCount;
+					}
+				}
+			}
+			return recordCount;
+		};
+	}
+
+	private static void checkInterrupted() throws InterruptedIOException {
+
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("Export has been cancelled.");
+		}
+	}
+
+	private void writeManifest(Path file, List<Segment> segments) throws IOException {
+
+		try (var generator = codec.getFactory().createGenerator(Files.newOutputStream(file), JsonEncoding.UTF8)) {
+			generator.useDefaultPrettyPrinter();
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("segments");
+			for (Segment segment : segments) {
+				generator.writeStartObject();
+				generator.writeStringField("file", segment.getFileName());
+				generator.writeStringField("kind", segment.getKind().name().toLowerCase(Locale.ROOT));
+				generator.writeNumberField("fromId", segment.getFromId());
+				generator.writeNumberField("toId", segment.getToId());
+				generator.writeNumberField("records", segment.getRecordCount());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+	}
+
+	private static final class Source {
+
+		private final Kind kind;
+
+		private final IdType idType;
+
+		private final RangeScan scan;
+
+		Source(Kind kind, IdType idType, RangeScan scan) {
+			this.kind = kind;
+			this.idType = idType;
+			this.scan = scan;
+		}
+	}
+
+	/**
+	 * Writes the entities with ids in a given range.
+	 */
+	@FunctionalInterface
+	private interface RangeScan {
+
+		/**
+		 * @return The number of records written
+		 */
+		long export(Transaction tx, long fromId, long toId, JoltRecordWriter writer) throws IOException;
+	}
+}
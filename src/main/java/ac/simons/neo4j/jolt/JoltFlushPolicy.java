@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.time.Duration;
+
+/**
+ * Decides when a {@link JoltRecordWriter} flushes the records written so far to its target stream. The policy is
+ * consulted after each record, there is no background timer: A latency budget is only checked when the next record
+ * is written. Policies are stateless and can be shared between writers.
+ */
+@FunctionalInterface
+public interface JoltFlushPolicy {
+
+	/**
+	 * @param recordCount         Total number of records written, including the current one
+	 * @param unflushedRecords    Number of records written since the last flush
+	 * @param unflushedBytes      Number of bytes written since the last flush
+	 * @param nanosSinceLastFlush Time since the last flush, or since the writer was created
+	 * @return {@code true} if the writer should flush now
+	 */
+	boolean shouldFlush(long recordCount, long unflushedRecords, long unflushedBytes, long nanosSinceLastFlush);
+
+	/**
+	 * @return A policy that never flushes explicitly, output reaches the stream only when the generator's buffer is
+	 * full, or when the writer is flushed or closed
+	 */
+	static JoltFlushPolicy whenBufferFull() {
+		return (recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) -> false;
+	}
+
+	/**
+	 * @param records The number of records after which to flush
+	 * @return A policy flushing after every {@code records} records
+	 */
+	static JoltFlushPolicy afterRecords(long records) {
+
+		if (records <= 0) {
+			throw new IllegalArgumentException("Number of records must be positive.");
+		}
+		return (recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) -> unflushedRecords >= records;
+	}
+
+	/**
+	 * @param bytes The number of bytes after which to flush
+	 * @return A policy flushing as soon as at least {@code bytes} bytes are unflushed
+	 */
+	static JoltFlushPolicy afterBytes(long bytes) {
+
+		if (bytes <= 0) {
+			throw new IllegalArgumentException("Number of bytes must be positive.");
+		}
+		return (recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) -> unflushedBytes >= bytes;
+	}
+
+	/**
+	 * @param budget The maximum time records may stay unflushed
+	 * @return A policy flushing the first record written after the budget has been exceeded
+	 */
+	static JoltFlushPolicy afterLatency(Duration budget) {
+
+		var budgetInNanos = budget.toNanos();
+		return (recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) ->
+			nanosSinceLastFlush >= budgetInNanos;
+	}
+
+	/**
+	 * A policy for interactive clients that still performs well on large results: The first record is flushed
+	 * immediately, after that the intervals double (after record 2, 4, 8 and so on). The flush happens earlier if
+	 * more than {@code maxUnflushedBytes} are buffered or the latency budget is exceeded.
+	 *
+	 * @param maxUnflushedBytes The maximum number of bytes to buffer
+	 * @param budget            The maximum time records may stay unflushed
+	 * @return An adaptive policy
+	 */
+	static JoltFlushPolicy adaptive(long maxUnflushedBytes, Duration budget) {
+
+		return afterBytes(maxUnflushedBytes)
+			.or(afterLatency(budget))
+			.or((recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) ->
+				(recordCount & (recordCount - 1)) == 0);
+	}
+
+	/**
+	 * @return An adaptive policy buffering at most 64 KiB for at most 100 ms
+	 * @see #adaptive(long, Duration)
+	 */
+	static JoltFlushPolicy adaptive() {
+		return adaptive(64 * 1024, Duration.ofMillis(100));
+	}
+
+	/**
+	 * @param other Another policy
+	 * @return A policy flushing when either this or the other policy wants to flush
+	 */
+	default JoltFlushPolicy or(JoltFlushPolicy other) {
+		return (recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) ->
+			shouldFlush(recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush) ||
+			other.shouldFlush(recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush);
+	}
+}
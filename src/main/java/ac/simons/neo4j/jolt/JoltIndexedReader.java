@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Reads single records from containers written by {@link JoltIndexedWriter}, by their number or by their key,
+ * without decoding any other record. The records are memory-mapped in segments that end at a record boundary, found
+ * by a binary search in the offset index, which is mapped as well. Keys are looked up by a binary search over the
+ * hashes in the mapped key index, the records with a matching hash are decoded to compare their keys.
+ * <p>
+ * A reader is thread-safe. The mappings stay valid until they are garbage collected, the file itself is not kept
+ * open.
+ */
+public final class JoltIndexedReader {
+
+	/**
+	 * The default target size of a segment.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+	private final JoltCodec codec;
+
+	private final ObjectWriter keyWriter;
+
+	private final long recordCount;
+
+	private final JoltMappedLongArray offsetIndex;
+
+	private final String keyField;
+
+	/**
+	 * Pairs of hash and record number, sorted by both.
+	 */
+	private final JoltMappedLongArray keyEntries;
+
+	private final List<MappedByteBuffer> segments;
+
+	/**
+	 * The number of the first record of each segment.
+	 */
+	private final long[] firstRecords;
+
+	/**
+	 * The offset of each segment from the start of the file.
+	 */
+	private final long[] segmentOffsets;
+
+	/**
+	 * Maps the given container with the default segment size.
+	 *
+	 * @param codec The codec used to decode the records, in the same mode as the one used to write them
+	 * @param file  The file to read
+	 * @throws IOException if the file is not a complete container or cannot be mapped
+	 */
+	public JoltIndexedReader(JoltCodec codec, Path file) throws IOException {
+		this(codec, file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Maps the given container. Segments will be at least {@code segmentSize} bytes long, unless they are at the end
+	 * of the records, and extend to the end of the record in which that size is reached.
+	 *
+	 * @param codec       The codec used to decode the records, in the same mode as the one used to write them
+	 * @param file        The file to read
+	 * @param segmentSize Target size of each segment in bytes
+	 * @throws IOException if the file is not a complete container or cannot be mapped
+	 */
+	public JoltIndexedReader(JoltCodec codec, Path file, int segmentSize) throws IOException {
+
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("Segment size must be positive.");
+		}
+
+		this.codec = codec;
+		this.keyWriter = codec.writer().without(SerializationFeature.INDENT_OUTPUT);
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var size = channel.size();
+			if (size < JoltIndexedWriter.HEADER_SIZE + JoltIndexedWriter.TRAILER_SIZE) {
+				throw new IOException("Not an indexed Jolt container.");
+			}
+			var header = map(channel, 0, JoltIndexedWriter.HEADER_SIZE);
+			if (!hasMagic(header, 0)) {
+				throw new IOException("Not an indexed Jolt container.");
+			}
+			if (header.get(JoltIndexedWriter.MAGIC.length) != JoltIndexedWriter.VERSION) {
+				throw new IOException("Unsupported version " + header.get(JoltIndexedWriter.MAGIC.length) + ".");
+			}
+
+			var trailer = map(channel, size - JoltIndexedWriter.TRAILER_SIZE, JoltIndexedWriter.TRAILER_SIZE);
+			if (!hasMagic(trailer, 3 * Long.BYTES)) {
+				throw new IOException("Incomplete indexed Jolt container, the writer has not been closed.");
+			}
+			var offsetIndexPosition = trailer.getLong(0);
+			var keyIndexPosition = trailer.getLong(Long.BYTES);
+			this.recordCount = trailer.getLong(2 * Long.BYTES);
+
+			this.offsetIndex = JoltMappedLongArray
+				.map(channel, FileChannel.MapMode.READ_ONLY, offsetIndexPosition, recordCount);
+			if (keyIndexPosition < 0) {
+				this.keyField = null;
+				this.keyEntries = null;
+			} else {
+				var nameLength = map(channel, keyIndexPosition, Integer.BYTES).getInt();
+				var keyHeader = map(channel, keyIndexPosition + Integer.BYTES, nameLength + Long.BYTES);
+				var name = new byte[nameLength];
+				keyHeader.get(name);
+				this.keyField = new String(name, StandardCharsets.UTF_8);
+				this.keyEntries = JoltMappedLongArray.map(channel, FileChannel.MapMode.READ_ONLY,
+					keyIndexPosition + Integer.BYTES + nameLength + Long.BYTES, 2 * keyHeader.getLong());
+			}
+
+			var mappedSegments = new ArrayList<MappedByteBuffer>();
+			var firstRecordsOfSegments = new long[16];
+			var offsetsOfSegments = new long[16];
+			var firstRecord = 0L;
+			while (firstRecord < recordCount) {
+				var start = offset(firstRecord);
+				var end = offsetIndexPosition;
+				var nextRecord = firstRecordAtOrAfter(start + segmentSize);
+				if (nextRecord < recordCount) {
+					end = offset(nextRecord);
+				}
+				if (mappedSegments.size() == firstRecordsOfSegments.length) {
+					firstRecordsOfSegments = Arrays.copyOf(firstRecordsOfSegments, mappedSegments.size() * 2);
+					offsetsOfSegments = Arrays.copyOf(offsetsOfSegments, mappedSegments.size() * 2);
+				}
+				firstRecordsOfSegments[mappedSegments.size()] = firstRecord;
+				offsetsOfSegments[mappedSegments.size()] = start;
+				mappedSegments.add(map(channel, start, end - start));
+				firstRecord = nextRecord;
+			}
+			this.segments = Collections.unmodifiableList(mappedSegments);
+			this.firstRecords = Arrays.copyOf(firstRecordsOfSegments, mappedSegments.size());
+			this.segmentOffsets = Arrays.copyOf(offsetsOfSegments, mappedSegments.size());
+		}
+	}
+
+	/**
+	 * @return The number of records in the container
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return The field the records are indexed by, if any
+	 */
+	public Optional<String> getKeyField() {
+		return Optional.ofNullable(keyField);
+	}
+
+	/**
+	 * Decodes one record.
+	 *
+	 * @param recordNumber The number of the record, starting at {@code 0}
+	 * @param recordType   The type the record is decoded into
+	 * @param <T>          The type of the record
+	 * @return The decoded record
+	 * @throws IOException if the record cannot be decoded
+	 */
+	public <T> T read(long recordNumber, Class<T> recordType) throws IOException {
+
+		if (recordNumber < 0 || recordNumber >= recordCount) {
+			throw new IndexOutOfBoundsException(
+				"Record " + recordNumber + " out of bounds for " + recordCount + " records.");
+		}
+
+		var segment = Arrays.binarySearch(firstRecords, recordNumber);
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+		var buffer = segments.get(segment).duplicate();
+		var start = (int) (offset(recordNumber) - segmentOffsets[segment]);
+		var length = buffer.getInt(start);
+		buffer.limit(start + Integer.BYTES + length).position(start + Integer.BYTES);
+		return codec.readerFor(recordType).readValue(new ByteBufferBackedInputStream(buffer));
+	}
+
+	/**
+	 * Decodes the first record with the given key, that is the one with the lowest number.
+	 *
+	 * @param key        The value of the key field, encoded with the codec of this reader to look it up
+	 * @param recordType The type the record is decoded into
+	 * @param <T>        The type of the record
+	 * @return The decoded record or an empty optional if there is no record with the given key
+	 * @throws IOException if the record cannot be decoded
+	 */
+	public <T> Optional<T> findByKey(Object key, Class<T> recordType) throws IOException {
+
+		if (keyField == null) {
+			throw new IllegalStateException("The container has no key index.");
+		}
+
+		var encodedKey = keyWriter.writeValueAsBytes(key);
+		var hash = JoltIndexedWriter.hash(encodedKey);
+		var entryCount = keyEntries.length() / 2;
+		for (long entry = firstEntryWithHashAtOrAbove(hash, entryCount);
+			entry < entryCount && keyEntries.get(2 * entry) == hash; ++entry) {
+
+			var recordNumber = keyEntries.get(2 * entry + 1);
+			Map<?, ?> record = read(recordNumber, Map.class);
+			if (Arrays.equals(encodedKey, keyWriter.writeValueAsBytes(record.get(keyField)))) {
+				var result = recordType.isInstance(record) ? recordType.cast(record) : read(recordNumber, recordType);
+				return Optional.of(result);
+			}
+		}
+		return Optional.empty();
+	}
+
+	private long offset(long recordNumber) {
+		return offsetIndex.get(recordNumber);
+	}
+
+	private long firstEntryWithHashAtOrAbove(long hash, long entryCount) {
+
+		var low = 0L;
+		var high = entryCount;
+		while (low < high) {
+			var middle = (low + high) >>> 1;
+			if (keyEntries.get(2 * middle) < hash) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return The number of the first record starting at or after {@code position}, or the number of records if there
+	 * is none
+	 */
+	private long firstRecordAtOrAfter(long position) {
+
+		var low = 0L;
+		var high = recordCount;
+		while (low < high) {
+			var middle = (low + high) >>> 1;
+			if (offset(middle) < position) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Region at offset " + position + " is too large to be mapped.");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	private static boolean hasMagic(ByteBuffer buffer, int index) {
+
+		for (int i = 0; i < JoltIndexedWriter.MAGIC.length; ++i) {
+			if (buffer.get(index + i) != JoltIndexedWriter.MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
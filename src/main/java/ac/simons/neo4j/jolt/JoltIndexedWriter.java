@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes Jolt records into a container that can be read at random, see {@link JoltIndexedReader}. All numbers are
+ * big-endian:
+ * <ol>
+ * <li>The magic bytes {@code JLTX} and one byte with the version of the format</li>
+ * <li>The records, each one as the length of its encoding in an {@code int} followed by the encoding</li>
+ * <li>The offset index, the offset of each record from the start of the file as a {@code long}</li>
+ * <li>Optionally the key index: The name of the key field as length and UTF-8 bytes, the number of entries as a
+ * {@code long} and the entries, each one as the 64-bit FNV-1a hash of the key's Jolt encoding in UTF-8 followed by
+ * the number of its record, both as {@code long}s. The entries are sorted by hash and record number.</li>
+ * <li>The trailer: The offsets of the offset index and of the key index, {@code -1} if there is none, and the number
+ * of records, all as {@code long}, followed by the magic bytes again</li>
+ * </ol>
+ * The indexes and the trailer are written when the writer is closed, a container that hasn't been closed cannot be
+ * read. Until then, both indexes are streamed into temporary files next to the container, so that the memory used
+ * doesn't depend on the number of records. The key index is sorted in place, through a mapping of its temporary
+ * file.
+ * <p>
+ * When a key field is given, each record that is a map containing that field is indexed by its value. Several
+ * records may have the same key.
+ */
+public final class JoltIndexedWriter implements Closeable {
+
+	static final byte[] MAGIC = { 'J', 'L', 'T', 'X' };
+
+	static final byte VERSION = 1;
+
+	static final int HEADER_SIZE = MAGIC.length + 1;
+
+	static final int TRAILER_SIZE = 3 * Long.BYTES + MAGIC.length;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final ObjectWriter writer;
+
+	private final FileChannel channel;
+
+	private final DataOutputStream out;
+
+	private final String keyField;
+
+	private final Path offsetsFile;
+
+	private final DataOutputStream offsets;
+
+	private final Path keysFile;
+
+	private final DataOutputStream keys;
+
+	private long recordCount;
+
+	private long keyCount;
+
+	private long position;
+
+	private boolean closed;
+
+	/**
+	 * Creates a container without a key index.
+	 *
+	 * @param codec The codec used to encode the records
+	 * @param file  The file to write, will be replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public JoltIndexedWriter(JoltCodec codec, Path file) throws IOException {
+		this(codec, file, null);
+	}
+
+	/**
+	 * Creates a container with a key index.
+	 *
+	 * @param codec    The codec used to encode the records and keys
+	 * @param file     The file to write, will be replaced if it exists
+	 * @param keyField The field of the records to index, {@literal null} for no key index
+	 * @throws IOException if the file cannot be written
+	 */
+	public JoltIndexedWriter(JoltCodec codec, Path file, String keyField) throws IOException {
+
+		this.writer = codec.writer().without(SerializationFeature.INDENT_OUTPUT);
+		this.keyField = keyField;
+
+		var directory = file.toAbsolutePath().getParent();
+		var prefix = file.getFileName().toString();
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.WRITE);
+		this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		this.offsetsFile = Files.createTempFile(directory, prefix, ".offsets");
+		this.offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsFile)));
+		if (keyField == null) {
+			this.keysFile = null;
+			this.keys = null;
+		} else {
+			this.keysFile = Files.createTempFile(directory, prefix, ".keys");
+			this.keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysFile)));
+		}
+
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		position = HEADER_SIZE;
+	}
+
+	/**
+	 * Appends one record.
+	 *
+	 * @param record The value to write as a record
+	 * @return The number of the record, starting at {@code 0}
+	 * @throws IOException if the record cannot be written
+	 */
+	public long write(Object record) throws IOException {
+
+		if (closed) {
+			throw new IOException("Writer closed.");
+		}
+
+		var encoded = writer.writeValueAsBytes(record);
+		var recordNumber = recordCount;
+		if (keys != null && record instanceof Map && ((Map<?, ?>) record).containsKey(keyField)) {
+			keys.writeLong(hash(writer.writeValueAsBytes(((Map<?, ?>) record).get(keyField))));
+			keys.writeLong(recordNumber);
+			++keyCount;
+		}
+
+		offsets.writeLong(position);
+		out.writeInt(encoded.length);
+		out.write(encoded);
+		position += Integer.BYTES + encoded.length;
+		++recordCount;
+		return recordNumber;
+	}
+
+	/**
+	 * @return The number of records written so far
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Writes the indexes and the trailer and closes the file.
+	 *
+	 * @throws IOException if the indexes cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try (channel; out; offsets; keys) {
+			var offsetIndexPosition = position;
+			offsets.flush();
+			append(offsetsFile);
+
+			var keyIndexPosition = -1L;
+			if (keys != null) {
+				keys.flush();
+				try (var keysChannel = FileChannel.open(keysFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					sort(JoltMappedLongArray.map(keysChannel, FileChannel.MapMode.READ_WRITE, 0, 2 * keyCount));
+				}
+
+				keyIndexPosition = position;
+				var name = keyField.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeLong(keyCount);
+				position += Integer.BYTES + name.length + Long.BYTES;
+				append(keysFile);
+			}
+
+			out.writeLong(offsetIndexPosition);
+			out.writeLong(keyIndexPosition);
+			out.writeLong(recordCount);
+			out.write(MAGIC);
+		} finally {
+			Files.deleteIfExists(offsetsFile);
+			if (keysFile != null) {
+				Files.deleteIfExists(keysFile);
+			}
+		}
+	}
+
+	/**
+	 * Appends the content of the given file after everything written so far.
+	 */
+	private void append(Path file) throws IOException {
+
+		out.flush();
+		try (var source = FileChannel.open(file, StandardOpenOption.READ)) {
+			var size = source.size();
+			var transferred = 0L;
+			while (transferred < size) {
+				transferred += source.transferTo(transferred, size - transferred, channel);
+			}
+			position += size;
+		}
+	}
+
+	static long hash(byte[] bytes) {
+
+		var hash = FNV_OFFSET_BASIS;
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Heap sort of the key entries, which are pairs of hash and record number, so that they can be sorted in place.
+	 */
+	private static void sort(JoltMappedLongArray entries) {
+
+		var count = entries.length() / 2;
+		for (long i = count / 2 - 1; i >= 0; --i) {
+			siftDown(entries, i, count);
+		}
+		for (long end = count - 1; end > 0; --end) {
+			swap(entries, 0, end);
+			siftDown(entries, 0, end);
+		}
+	}
+
+	private static void siftDown(JoltMappedLongArray entries, long root, long count) {
+
+		var parent = root;
+		while (true) {
+			var child = 2 * parent + 1;
+			if (child >= count) {
+				return;
+			}
+			if (child + 1 < count && compare(entries, child, child + 1) < 0) {
+				++child;
+			}
+			if (compare(entries, parent, child) >= 0) {
+				return;
+			}
+			swap(entries, parent, child);
+			parent = child;
+		}
+	}
+
+	private static int compare(JoltMappedLongArray entries, long i, long j) {
+
+		var result = Long.compare(entries.get(2 * i), entries.get(2 * j));
+		return result != 0 ? result : Long.compare(entries.get(2 * i + 1), entries.get(2 * j + 1));
+	}
+
+	private static void swap(JoltMappedLongArray entries, long i, long j) {
+
+		var hash = entries.get(2 * i);
+		var recordNumber = entries.get(2 * i + 1);
+		entries.set(2 * i, entries.get(2 * j));
+		entries.set(2 * i + 1, entries.get(2 * j + 1));
+		entries.set(2 * j, hash);
+		entries.set(2 * j + 1, recordNumber);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses output of a {@link JoltDeflaterOutputStream}, supplying the preset dictionary when the compressed
+ * stream asks for it.
+ */
+public final class JoltInflaterInputStream extends InflaterInputStream {
+
+	private final JoltCompressionDictionary dictionary;
+
+	private boolean closed;
+
+	/**
+	 * Creates a stream with a dictionary of the sigils.
+	 *
+	 * @param in The compressed input
+	 */
+	public JoltInflaterInputStream(InputStream in) {
+		this(in, JoltCompressionDictionary.ofSigils());
+	}
+
+	/**
+	 * @param in         The compressed input
+	 * @param dictionary The dictionary the input has been compressed with
+	 */
+	public JoltInflaterInputStream(InputStream in, JoltCompressionDictionary dictionary) {
+		super(in, new Inflater());
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		var n = super.read(b, off, len);
+		if (n == -1 && inf.needsDictionary()) {
+			if (inf.getAdler() != dictionary.getAdler()) {
+				throw new ZipException("Input has been compressed with a different dictionary.");
+			}
+			inf.setDictionary(dictionary.getBytes());
+			n = super.read(b, off, len);
+		}
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			super.close();
+		} finally {
+			inf.end();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.DatabindContext;
+
+/**
+ * Dictionary of map and property keys for one response. When a dictionary is present, each key is written literally
+ * the first time it appears and gets the next free index. Later occurrences are written as a reference
+ * {@code ~<index>}, with the index in decimal, as long as the reference is shorter than the key. Keys starting with
+ * {@code ~} are escaped by another {@code ~}. Once the dictionary holds {@code maxSize} keys, new keys are written
+ * literally without getting an index. Both sides must use dictionaries of the same size and see all keys of the
+ * response in the same order, including the property keys of nodes and relationships.
+ * <p>
+ * A dictionary is mutable and must only be used by one writer or reader at a time. It is passed to the codec as an
+ * attribute, see {@link JoltCodec#writerWithKeyDictionary()} and {@link JoltCodec#readerWithKeyDictionary(Class)}.
+ */
+public final class JoltKeyDictionary {
+
+	/**
+	 * The default maximum number of keys.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static final char REFERENCE_PREFIX = '~';
+
+	private final int maxSize;
+
+	private final Map<String, Integer> indexes = new HashMap<>();
+
+	private final List<String> keys = new ArrayList<>();
+
+	/**
+	 * Creates a dictionary with the default maximum size.
+	 */
+	public JoltKeyDictionary() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize The maximum number of keys to hold
+	 */
+	public JoltKeyDictionary(int maxSize) {
+
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Maximum size must not be negative.");
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return The number of keys in this dictionary
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	static String encode(DatabindContext context, String key) {
+
+		var dictionary = (JoltKeyDictionary) context.getAttribute(JoltKeyDictionary.class);
+		return dictionary == null ? key : dictionary.encode(key);
+	}
+
+	static String decode(DatabindContext context, String key) {
+
+		var dictionary = (JoltKeyDictionary) context.getAttribute(JoltKeyDictionary.class);
+		return dictionary == null ? key : dictionary.decode(key);
+	}
+
+	String encode(String key) {
+
+		var literal = isReferenceOrEscaped(key) ? REFERENCE_PREFIX + key : key;
+		var index = indexes.get(key);
+		if (index == null) {
+			register(key);
+			return literal;
+		}
+
+		var reference = REFERENCE_PREFIX + Integer.toString(index);
+		return reference.length() < literal.length() ? reference : literal;
+	}
+
+	String decode(String value) {
+
+		if (!isReferenceOrEscaped(value)) {
+			register(value);
+			return value;
+		}
+
+		if (value.length() > 1 && value.charAt(1) == REFERENCE_PREFIX) {
+			var key = value.substring(1);
+			register(key);
+			return key;
+		}
+
+		int index;
+		try {
+			index = Integer.parseInt(value, 1, value.length(), 10);
+		} catch (NumberFormatException e) {
+			index = -1;
+		}
+		if (index < 0 || index >= keys.size()) {
+			throw new IllegalArgumentException("Unknown key reference '" + value + "'.");
+		}
+		return keys.get(index);
+	}
+
+	private void register(String key) {
+
+		if (keys.size() < maxSize && indexes.putIfAbsent(key, keys.size()) == null) {
+			keys.add(key);
+		}
+	}
+
+	private static boolean isReferenceOrEscaped(String value) {
+		return !value.isEmpty() && value.charAt(0) == REFERENCE_PREFIX;
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.DataInput;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.IOContext;
+
+/**
+ * A copy of a codec's factory that creates parsers enforcing {@link JoltDecodingLimits}. The length of the input is
+ * checked upfront for arrays and strings and counted while reading for streams and readers, so that a single huge
+ * value fails once the limit has been read, not after it has been buffered completely. Streams and readers also act
+ * as {@link JoltLimitingParser.TokenGuard}, stopping a single string once it spans more input than its limit allows.
+ * All other limits are enforced by a {@link JoltLimitingParser}.
+ */
+final class JoltLimitingJsonFactory extends JoltRecordingJsonFactory {
+
+	private static final long serialVersionUID = 1L;
+
+	private final JoltDecodingLimits limits;
+
+	JoltLimitingJsonFactory(JoltRecordingJsonFactory source, JoltDecodingLimits limits) {
+		super(source, null);
+		this.limits = limits;
+	}
+
+	@Override
+	public JoltLimitingJsonFactory copy() {
+		return new JoltLimitingJsonFactory(this, limits);
+	}
+
+	@Override
+	protected JsonParser _createParser(InputStream in, IOContext ctxt) throws IOException {
+		var limitedInputStream = new LimitedInputStream(in, limits.getMaxInputLength());
+		return limit(super._createParser(limitedInputStream, ctxt), limitedInputStream);
+	}
+
+	@Override
+	protected JsonParser _createParser(Reader r, IOContext ctxt) throws IOException {
+		var limitedReader = new LimitedReader(r, limits.getMaxInputLength());
+		return limit(super._createParser(limitedReader, ctxt), limitedReader);
+	}
+
+	@Override
+	protected JsonParser _createParser(char[] data, int offset, int len, IOContext ctxt, boolean recyclable)
+		throws IOException {
+
+		checkInputLength(len, limits.getMaxInputLength());
+		return limit(super._createParser(data, offset, len, ctxt, recyclable), null);
+	}
+
+	@Override
+	protected JsonParser _createParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException {
+
+		checkInputLength(len, limits.getMaxInputLength());
+		return limit(super._createParser(data, offset, len, ctxt), null);
+	}
+
+	@Override
+	protected JsonParser _createParser(DataInput input, IOContext ctxt) {
+		throw new UnsupportedOperationException("The length of DataInput cannot be limited.");
+	}
+
+	private JsonParser limit(JsonParser parser, JoltLimitingParser.TokenGuard guard) {
+		return new JoltLimitingParser(parser, limits, guard);
+	}
+
+	private static void checkInputLength(long length, long maxInputLength) throws IOException {
+
+		if (length > maxInputLength) {
+			throw new JsonParseException(null, "Maximum input length of " + maxInputLength + " exceeded");
+		}
+	}
+
+	/**
+	 * The state of an armed guard. The parser only reads more input while finishing a token if it has consumed all
+	 * input read so far, so everything read since the start of the token belongs to it.
+	 */
+	private static final class Watch {
+
+		private final long tokenStart;
+
+		private final long maxRawLength;
+
+		private final String message;
+
+		Watch(long tokenStart, long maxRawLength, String message) {
+			this.tokenStart = tokenStart;
+			this.maxRawLength = maxRawLength;
+			this.message = message;
+		}
+
+		void check(long count) throws IOException {
+
+			if (count - tokenStart > maxRawLength) {
+				throw new JsonParseException(null, message);
+			}
+		}
+	}
+
+	private static final class LimitedInputStream extends FilterInputStream implements JoltLimitingParser.TokenGuard {
+
+		private final long maxInputLength;
+
+		private long count;
+
+		private Watch watch;
+
+		LimitedInputStream(InputStream in, long maxInputLength) {
+			super(in);
+			this.maxInputLength = maxInputLength;
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			checkWatch();
+			var b = super.read();
+			if (b >= 0) {
+				checkInputLength(++count, maxInputLength);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+
+			checkWatch();
+			var n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+				checkInputLength(count, maxInputLength);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+
+			checkWatch();
+			var skipped = super.skip(n);
+			count += skipped;
+			checkInputLength(count, maxInputLength);
+			return skipped;
+		}
+
+		@Override
+		public void arm(JsonLocation tokenLocation, long maxRawLength, String message) {
+
+			var tokenStart = tokenLocation.getByteOffset();
+			if (tokenStart >= 0) {
+				watch = new Watch(tokenStart, maxRawLength, message);
+			}
+		}
+
+		@Override
+		public void disarm() {
+			watch = null;
+		}
+
+		private void checkWatch() throws IOException {
+
+			if (watch != null) {
+				watch.check(count);
+			}
+		}
+	}
+
+	private static final class LimitedReader extends FilterReader implements JoltLimitingParser.TokenGuard {
+
+		private final long maxInputLength;
+
+		private long count;
+
+		private Watch watch;
+
+		LimitedReader(Reader in, long maxInputLength) {
+			super(in);
+			this.maxInputLength = maxInputLength;
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			checkWatch();
+			var c = super.read();
+			if (c >= 0) {
+				checkInputLength(++count, maxInputLength);
+			}
+			return c;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+
+			checkWatch();
+			var n = super.read(cbuf, off, len);
+			if (n > 0) {
+				count += n;
+				checkInputLength(count, maxInputLength);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+
+			checkWatch();
+			var skipped = super.skip(n);
+			count += skipped;
+			checkInputLength(count, maxInputLength);
+			return skipped;
+		}
+
+		@Override
+		public void arm(JsonLocation tokenLocation, long maxRawLength, String message) {
+
+			var tokenStart = tokenLocation.getCharOffset();
+			if (tokenStart >= 0) {
+				watch = new Watch(tokenStart, maxRawLength, message);
+			}
+		}
+
+		@Override
+		public void disarm() {
+			watch = null;
+		}
+
+		private void checkWatch() throws IOException {
+
+			if (watch != null) {
+				watch.check(count);
+			}
+		}
+	}
+}
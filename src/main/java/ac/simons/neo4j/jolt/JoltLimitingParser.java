@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+/**
+ * Enforces the structural {@link JoltDecodingLimits} on each token, before any deserializer sees it: the nesting
+ * depth, the size of arrays and objects, the length of strings and keys and the length of binary values. Binary
+ * values are recognized by the {@link Sigil#BINARY} and {@link Sigil#BINARY_BASE64} keys preceding them, so that
+ * their decoded length can be checked before they are decoded.
+ * <p>
+ * Jackson reads the content of a string only when it is first accessed. While that happens, the parser arms the
+ * {@link TokenGuard} of its input, if there is one, so that a string exceeding its limit fails after a bounded
+ * number of characters has been read and not after the whole string has been buffered. Keys and input given as
+ * arrays are checked once they have been read.
+ */
+final class JoltLimitingParser extends JsonParserDelegate {
+
+	/**
+	 * The longest raw representation of a single character in a JSON string, a {@code \\uXXXX} escape.
+	 */
+	private static final long MAX_RAW_CHARACTER_LENGTH = 6L;
+
+	private final JoltDecodingLimits limits;
+
+	private final TokenGuard guard;
+
+	private int depth;
+
+	/**
+	 * The sigil of the binary value that is expected next, if any.
+	 */
+	private Sigil binarySigil;
+
+	JoltLimitingParser(JsonParser delegate, JoltDecodingLimits limits, TokenGuard guard) {
+		super(delegate);
+		this.limits = limits;
+		this.guard = guard;
+	}
+
+	@Override
+	public JsonToken nextToken() throws IOException {
+		return check(delegate.nextToken());
+	}
+
+	@Override
+	public JsonToken nextValue() throws IOException {
+
+		// Not delegated, the delegate would skip field names without them being checked
+		var token = nextToken();
+		if (token == JsonToken.FIELD_NAME) {
+			token = nextToken();
+		}
+		return token;
+	}
+
+	@Override
+	public JsonParser skipChildren() throws IOException {
+
+		var token = delegate.currentToken();
+		delegate.skipChildren();
+		if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+			--depth;
+		}
+		return this;
+	}
+
+	private JsonToken check(JsonToken token) throws IOException {
+
+		if (token == null) {
+			return null;
+		}
+
+		var expectedBinary = binarySigil;
+		binarySigil = null;
+
+		switch (token) {
+			case START_ARRAY:
+			case START_OBJECT:
+				checkSize(delegate.getParsingContext().getParent());
+				if (++depth > limits.getMaxDepth()) {
+					throw new JsonParseException(this, "Maximum depth of " + limits.getMaxDepth() + " exceeded");
+				}
+				break;
+			case END_ARRAY:
+			case END_OBJECT:
+				--depth;
+				break;
+			case FIELD_NAME:
+				checkSize(delegate.getParsingContext());
+				var name = delegate.getCurrentName();
+				checkStringLength(name.length());
+				if (Sigil.BINARY.getValue().equals(name)) {
+					binarySigil = Sigil.BINARY;
+				} else if (Sigil.BINARY_BASE64.getValue().equals(name)) {
+					binarySigil = Sigil.BINARY_BASE64;
+				}
+				break;
+			case VALUE_STRING:
+				checkSize(delegate.getParsingContext());
+				var length = readTextLength(expectedBinary);
+				checkStringLength(length);
+				if (expectedBinary != null) {
+					checkBinaryLength(expectedBinary == Sigil.BINARY ? length / 2L : length / 4L * 3L);
+				}
+				break;
+			default:
+				checkSize(delegate.getParsingContext());
+		}
+		return token;
+	}
+
+	/**
+	 * Reads the current string with the guard armed. The guard is bound to the raw length the longest acceptable
+	 * string could have, so that it never rejects a string the exact checks afterwards would accept.
+	 */
+	private int readTextLength(Sigil expectedBinary) throws IOException {
+
+		if (guard == null) {
+			return delegate.getTextLength();
+		}
+
+		long maxLength = limits.getMaxStringLength();
+		var message = stringLengthExceeded();
+		if (expectedBinary != null) {
+			// The longest encoded strings checkBinaryLength still accepts
+			long maxEncodedLength = expectedBinary == Sigil.BINARY ?
+				limits.getMaxBinaryLength() * 2L + 1L :
+				limits.getMaxBinaryLength() / 3L * 4L + 3L;
+			if (maxEncodedLength < maxLength) {
+				maxLength = maxEncodedLength;
+				message = binaryLengthExceeded();
+			}
+		}
+
+		// Two more for the quotes
+		guard.arm(delegate.getTokenLocation(), maxLength * MAX_RAW_CHARACTER_LENGTH + 2L, message);
+		try {
+			return delegate.getTextLength();
+		} finally {
+			guard.disarm();
+		}
+	}
+
+	/**
+	 * Checks the number of entries of the given context, including the current one. Top-level values are not
+	 * counted, as they are independent of each other.
+	 */
+	private void checkSize(JsonStreamContext context) throws IOException {
+
+		if (!context.inRoot() && context.getCurrentIndex() >= limits.getMaxCollectionSize()) {
+			throw new JsonParseException(this,
+				"Maximum collection size of " + limits.getMaxCollectionSize() + " exceeded");
+		}
+	}
+
+	private void checkStringLength(int length) throws IOException {
+
+		if (length > limits.getMaxStringLength()) {
+			throw new JsonParseException(this, stringLengthExceeded());
+		}
+	}
+
+	private void checkBinaryLength(long length) throws IOException {
+
+		if (length > limits.getMaxBinaryLength()) {
+			throw new JsonParseException(this, binaryLengthExceeded());
+		}
+	}
+
+	private String stringLengthExceeded() {
+		return "Maximum string length of " + limits.getMaxStringLength() + " exceeded";
+	}
+
+	private String binaryLengthExceeded() {
+		return "Maximum binary length of " + limits.getMaxBinaryLength() + " exceeded";
+	}
+
+	/**
+	 * Counts the input of a parser and fails reading more of it once a token has become too long.
+	 */
+	interface TokenGuard {
+
+		/**
+		 * Starts watching the token at the given location. The guard ignores locations not matching its kind of
+		 * input, i.e. byte offsets for readers.
+		 *
+		 * @param tokenLocation The location of the token being read
+		 * @param maxRawLength  The maximum number of bytes or characters the token may span
+		 * @param message       The message of the exception thrown once the token spans more
+		 */
+		void arm(JsonLocation tokenLocation, long maxRawLength, String message);
+
+		/**
+		 * Stops watching the token.
+		 */
+		void disarm();
+	}
+}
@@ -47,7 +47,7 @@ final class JoltListSerializer extends StdSerializer<List<?>>
 
         for ( var entry : list )
         {
-            generator.writeObject( entry );
+            provider.defaultSerializeValue( entry, generator );
         }
 
         generator.writeEndArray();
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A region of a file, read as an array of big-endian {@code long}s. The region is mapped in segments of
+ * {@value #SEGMENT_LENGTH} values, so that it is not limited to the size of a single mapping.
+ */
+final class JoltMappedLongArray {
+
+	private static final int SEGMENT_SHIFT = 27;
+
+	static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+
+	private static final long SEGMENT_MASK = SEGMENT_LENGTH - 1;
+
+	private final MappedByteBuffer[] segments;
+
+	private final long length;
+
+	private JoltMappedLongArray(MappedByteBuffer[] segments, long length) {
+		this.segments = segments;
+		this.length = length;
+	}
+
+	/**
+	 * @param channel  The channel to map
+	 * @param mode     {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}
+	 * @param position The offset of the first value in the file
+	 * @param length   The number of values
+	 * @return The mapped values
+	 * @throws IOException if the region cannot be mapped
+	 */
+	static JoltMappedLongArray map(FileChannel channel, FileChannel.MapMode mode, long position, long length)
+		throws IOException {
+
+		var segments = new MappedByteBuffer[(int) ((length + SEGMENT_LENGTH - 1) >>> SEGMENT_SHIFT)];
+		for (int i = 0; i < segments.length; ++i) {
+			var first = (long) i << SEGMENT_SHIFT;
+			var values = Math.min(SEGMENT_LENGTH, length - first);
+			segments[i] = channel.map(mode, position + first * Long.BYTES, values * Long.BYTES);
+		}
+		return new JoltMappedLongArray(segments, length);
+	}
+
+	long length() {
+		return length;
+	}
+
+	long get(long index) {
+		return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * Long.BYTES);
+	}
+
+	void set(long index, long value) {
+		segments[(int) (index >>> SEGMENT_SHIFT)].putLong((int) (index & SEGMENT_MASK) * Long.BYTES, value);
+	}
+}
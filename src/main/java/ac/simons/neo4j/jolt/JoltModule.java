@@ -19,6 +19,7 @@
  */
 package ac.simons.neo4j.jolt;
 
+import java.io.Reader;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -44,7 +45,12 @@ import com.fasterxml.jackson.databind.ser.std.StdDelegatingSerializer;
 enum JoltModule
 {
     DEFAULT( new JoltModuleImpl( false ) ),
-    STRICT( new JoltModuleImpl( true ) );
+    STRICT( new JoltModuleImpl( true ) ),
+    /**
+     * Additional module that writes binary values base64 encoded instead of hex, for use together with one of the
+     * above. Binary values are decoded according to their sigil regardless of this module.
+     */
+    BASE64_BINARY( new SimpleModule( "JoltBase64Binary" ).addSerializer( new JoltBase64BinarySerializer() ) );
 
     private final SimpleModule instance;
 
@@ -79,41 +85,46 @@ enum JoltModule
                 this.addSerializer( new JoltDelegatingValueSerializer<>( boolean.class, String::valueOf ) );
                 this.addSerializer( new JoltDelegatingValueSerializer<>( Boolean.class, String::valueOf ) );
 
-                this.addSerializer( new JoltDelegatingValueSerializer<>( int.class, String::valueOf ) );
-                this.addSerializer( new JoltDelegatingValueSerializer<>( Integer.class, String::valueOf ) );
+                this.addSerializer( new JoltNumberSerializer<>( int.class, false ) );
+                this.addSerializer( new JoltNumberSerializer<>( Integer.class, false ) );
 
-                this.addSerializer( new JoltDelegatingValueSerializer<>( long.class, String::valueOf ) );
-                this.addSerializer( new JoltDelegatingValueSerializer<>( Long.class, String::valueOf ) );
+                this.addSerializer( new JoltNumberSerializer<>( long.class, false ) );
+                this.addSerializer( new JoltNumberSerializer<>( Long.class, false ) );
 
                 this.addSerializer( new JoltDelegatingValueSerializer<>( Void.class, String::valueOf ) );
             }
             else
             {
-                this.addSerializer( new JoltSparseNumberSerializer<>( int.class, Sigil.INTEGER, String::valueOf ) );
-                this.addSerializer( new JoltSparseNumberSerializer<>( Integer.class, Sigil.INTEGER, String::valueOf ) );
+                this.addSerializer( new JoltSparseNumberSerializer<>( int.class, Sigil.INTEGER ) );
+                this.addSerializer( new JoltSparseNumberSerializer<>( Integer.class, Sigil.INTEGER ) );
 
-                this.addSerializer( new JoltSparseNumberSerializer<>( long.class, Sigil.INTEGER, String::valueOf ) );
-                this.addSerializer( new JoltSparseNumberSerializer<>( Long.class, Sigil.INTEGER, String::valueOf ) );
+                this.addSerializer( new JoltSparseNumberSerializer<>( long.class, Sigil.INTEGER ) );
+                this.addSerializer( new JoltSparseNumberSerializer<>( Long.class, Sigil.INTEGER ) );
             }
 
-            this.addSerializer( new JoltDelegatingValueSerializer<>( double.class, String::valueOf ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( Double.class, String::valueOf ) );
+            this.addSerializer( new JoltReaderSerializer( strictModeEnabled ) );
+
+            this.addSerializer( new JoltNumberSerializer<>( double.class, true ) );
+            this.addSerializer( new JoltNumberSerializer<>( Double.class, true ) );
 
             this.addSerializer( new JoltDelegatingValueSerializer<>( byte[].class, JoltModuleImpl::toHexString ) );
 
             this.addSerializer( new JoltDelegatingValueSerializer<>( Point.class, new PointToWKT() ) );
 
-            this.addSerializer( new JoltDelegatingValueSerializer<>( LocalDate.class, DateTimeFormatter.ISO_LOCAL_DATE::format ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( OffsetTime.class, DateTimeFormatter.ISO_OFFSET_TIME::format ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( LocalTime.class, DateTimeFormatter.ISO_LOCAL_TIME::format ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( ZonedDateTime.class, DateTimeFormatter.ISO_ZONED_DATE_TIME::format ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( LocalDateTime.class, DateTimeFormatter.ISO_LOCAL_DATE_TIME::format ) );
-            this.addSerializer( new JoltDelegatingValueSerializer<>( DurationValue.class, DurationValue::toString ) );
+            this.addSerializer( new JoltTemporalSerializer<>( LocalDate.class, JoltTemporalFormatter::formatLocalDate ) );
+            this.addSerializer( new JoltTemporalSerializer<>( OffsetTime.class, JoltTemporalFormatter::formatOffsetTime ) );
+            this.addSerializer( new JoltTemporalSerializer<>( LocalTime.class, JoltTemporalFormatter::formatLocalTime ) );
+            this.addSerializer( new JoltTemporalSerializer<>( ZonedDateTime.class, JoltTemporalFormatter::formatZonedDateTime,
+                    value -> JoltTemporalFormatter.MAX_LENGTH + value.getZone().getId().length() ) );
+            this.addSerializer( new JoltTemporalSerializer<>( LocalDateTime.class, JoltTemporalFormatter::formatLocalDateTime ) );
+            this.addSerializer( new JoltTemporalSerializer<>( DurationValue.class, JoltTemporalFormatter::formatDuration ) );
 
             this.addSerializer( new StdDelegatingSerializer( Label.class, new JoltLabelConverter() ) );
             this.addSerializer(
                 new StdDelegatingSerializer( RelationshipType.class, new JoltRelationshipTypeConverter() ) );
 
+            this.addKeySerializer( String.class, new JoltKeySerializer() );
+
             this.addSerializer( new JoltNodeSerializer() );
             this.addSerializer( new JoltRelationshipSerializer() );
             this.addSerializer( new JoltRelationshipReversedSerializer() );
@@ -130,28 +141,25 @@ enum JoltModule
                 this.addDeserializer(boolean.class, new JoltDelegatingValueDeserializer<>( boolean.class, Boolean::parseBoolean ) );
                 this.addDeserializer(Boolean.class, new JoltDelegatingValueDeserializer<>( Boolean.class, Boolean::valueOf ) );
 
-                this.addDeserializer(int.class, new JoltDelegatingValueDeserializer<>( int.class, Integer::parseInt ) );
-                this.addDeserializer(Integer.class, new JoltDelegatingValueDeserializer<>( Integer.class, Integer::valueOf ) );
+                this.addDeserializer(int.class, new JoltNumberDeserializer<>( int.class, JoltNumberCodec::parseInt ) );
+                this.addDeserializer(Integer.class, new JoltNumberDeserializer<>( Integer.class, JoltNumberCodec::parseInt ) );
 
-                this.addDeserializer( long.class, new JoltDelegatingValueDeserializer<>( long.class, Long::parseLong ) );
-                this.addDeserializer( Long.class, new JoltDelegatingValueDeserializer<>( Long.class, Long::valueOf ) );
+                this.addDeserializer( long.class, new JoltNumberDeserializer<>( long.class, JoltNumberCodec::parseLong ) );
+                this.addDeserializer( Long.class, new JoltNumberDeserializer<>( Long.class, JoltNumberCodec::parseLong ) );
             }
             else
             {
                 // TODO Unsure…?
             }
 
-            this.addDeserializer(Number.class, new JoltDelegatingValueDeserializer<>( Number.class,  v -> {
+            this.addDeserializer(Number.class, new JoltNumberDeserializer<>( Number.class, JoltNumberCodec::parseNumber ) );
+
+            this.addKeyDeserializer( Object.class, new JoltKeyDeserializer() );
+            this.addKeyDeserializer( String.class, new JoltKeyDeserializer() );
 
-                // Probably not the best place…
-                try {
-                    return Long.parseLong(v);
-                } catch (NumberFormatException e) {
-                    return Double.parseDouble(v);
-                }
-            } ));
+            this.addDeserializer( Reader.class, new JoltReaderDeserializer() );
 
-            this.addDeserializer( byte[].class, new JoltDelegatingValueDeserializer<>( byte[].class, JoltModuleImpl::fromHexString ) );
+            this.addDeserializer( byte[].class, new JoltBinaryDeserializer( JoltModuleImpl::fromHexString ) );
 
             this.addDeserializer( Point.class, new JoltDelegatingValueDeserializer<>( Point.class, new WKTToPoint() ) );
 
@@ -39,6 +39,19 @@ final class JoltNodeSerializer extends StdScalarSerializer<Node>
 
     @Override
     public void serialize( Node node, JsonGenerator generator, SerializerProvider provider ) throws IOException
+    {
+        var cache = JoltEntityCache.of( provider, generator );
+        if ( cache == null )
+        {
+            write( node, generator, provider );
+        }
+        else
+        {
+            generator.writeRawValue( cache.getNode( node.getId(), fragment -> write( node, fragment, provider ) ) );
+        }
+    }
+
+    private static void write( Node node, JsonGenerator generator, SerializerProvider provider ) throws IOException
     {
         generator.writeStartArray();
 
@@ -57,8 +70,8 @@ final class JoltNodeSerializer extends StdScalarSerializer<Node>
 
         for ( var entry : properties.entrySet() )
         {
-            generator.writeFieldName( entry.getKey() );
-            generator.writeObject( entry.getValue() );
+            generator.writeFieldName( JoltKeyDictionary.encode( provider, entry.getKey() ) );
+            provider.defaultSerializeValue( entry.getValue(), generator );
         }
 
         generator.writeEndObject();
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+/**
+ * Formats and parses longs and doubles from char buffers. The output of the format methods is the same as the one of
+ * {@link Long#toString(long)} and {@link Double#toString(double)}, the parse methods accept what
+ * {@link Long#parseLong(String)} and {@link Double#parseDouble(String)} accept.
+ * <p>
+ * Common values are handled without creating any objects: Longs are always written digit by digit, doubles between
+ * {@code 10^-3} and {@code 10^7}, which {@link Double#toString(double)} writes without an exponent, are written from
+ * the shortest decimal that rounds to the same double. When parsing, plain integers with up to 18 digits and plain
+ * decimals whose digits fit into a double's mantissa are computed directly. Anything else falls back to the methods
+ * of {@link Long} and {@link Double}.
+ */
+final class JoltNumberCodec {
+
+	/**
+	 * Maximum length of a formatted long or double.
+	 */
+	static final int MAX_LENGTH = 32;
+
+	private static final char[] MIN_LONG = Long.toString(Long.MIN_VALUE).toCharArray();
+
+	/**
+	 * Powers of ten that are exactly representable as doubles.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final long[] LONG_POWERS_OF_TEN = {
+		1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+		10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+		1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+	};
+
+	/**
+	 * Largest integer up to which all integers are exactly representable as doubles.
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final int MAX_PLAIN_DIGITS = 18;
+
+	static int formatLong(long value, char[] buffer, int position) {
+
+		if (value == Long.MIN_VALUE) {
+			System.arraycopy(MIN_LONG, 0, buffer, position, MIN_LONG.length);
+			return position + MIN_LONG.length;
+		}
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+
+		var end = position + numberOfDigits(value);
+		for (int i = end - 1; i >= position; --i) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+
+	static int formatDouble(double value, char[] buffer, int position) {
+
+		var absoluteValue = Math.abs(value);
+		if (absoluteValue >= 1e-3 && absoluteValue < 1e7 || absoluteValue == 0.0) {
+			// The smallest number of fraction digits that still rounds to the same double gives the shortest decimal
+			for (int fractionDigits = 0; fractionDigits < POWERS_OF_TEN.length; ++fractionDigits) {
+				var scaled = absoluteValue * POWERS_OF_TEN[fractionDigits];
+				if (scaled >= MAX_EXACT_MANTISSA) {
+					break;
+				}
+				var digits = (long) Math.rint(scaled);
+				if (digits / POWERS_OF_TEN[fractionDigits] == absoluteValue) {
+					if (Double.doubleToRawLongBits(value) < 0) {
+						buffer[position++] = '-';
+					}
+					return formatDecimal(digits, fractionDigits, buffer, position);
+				}
+			}
+		}
+
+		var formatted = Double.toString(value);
+		formatted.getChars(0, formatted.length(), buffer, position);
+		return position + formatted.length();
+	}
+
+	static int parseInt(char[] chars, int offset, int length) {
+
+		if (isPlainInteger(chars, offset, length)) {
+			var value = parsePlainInteger(chars, offset, length);
+			if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+				return (int) value;
+			}
+		}
+		return Integer.parseInt(new String(chars, offset, length));
+	}
+
+	static long parseLong(char[] chars, int offset, int length) {
+
+		if (isPlainInteger(chars, offset, length)) {
+			return parsePlainInteger(chars, offset, length);
+		}
+		return Long.parseLong(new String(chars, offset, length));
+	}
+
+	static double parseDouble(char[] chars, int offset, int length) {
+
+		var start = offset;
+		var end = offset + length;
+		var negative = false;
+		if (start < end && (chars[start] == '-' || chars[start] == '+')) {
+			negative = chars[start++] == '-';
+		}
+
+		var mantissa = 0L;
+		var digits = 0;
+		var significantDigits = 0;
+		var fractionDigits = -1;
+		var i = start;
+		for (; i < end && significantDigits < MAX_PLAIN_DIGITS; ++i) {
+			var c = chars[i];
+			if (c == '.' && fractionDigits < 0 && i > start) {
+				fractionDigits = 0;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				break;
+			}
+			mantissa = mantissa * 10 + (c - '0');
+			++digits;
+			if (mantissa != 0) {
+				++significantDigits;
+			}
+			if (fractionDigits >= 0) {
+				++fractionDigits;
+			}
+		}
+
+		// Both mantissa and power of ten are exact, so the division is correctly rounded
+		if (i == end && digits > 0 && fractionDigits != 0 && fractionDigits < POWERS_OF_TEN.length && mantissa <= MAX_EXACT_MANTISSA) {
+			var value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : (double) mantissa;
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(new String(chars, offset, length));
+	}
+
+	/**
+	 * Parses a number the same way as a {@link Long} if possible and as a {@link Double} otherwise.
+	 *
+	 * @return A {@link Long} or a {@link Double}
+	 */
+	static Number parseNumber(char[] chars, int offset, int length) {
+
+		if (isPlainInteger(chars, offset, length)) {
+			return parsePlainInteger(chars, offset, length);
+		}
+		if (!mayBeLong(chars, offset, length)) {
+			return parseDouble(chars, offset, length);
+		}
+
+		var value = new String(chars, offset, length);
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return Double.parseDouble(value);
+		}
+	}
+
+	private static int formatDecimal(long digits, int fractionDigits, char[] buffer, int position) {
+
+		if (fractionDigits == 0) {
+			position = formatLong(digits, buffer, position);
+			buffer[position++] = '.';
+			buffer[position++] = '0';
+			return position;
+		}
+
+		var divisor = LONG_POWERS_OF_TEN[fractionDigits];
+		position = formatLong(digits / divisor, buffer, position);
+		buffer[position++] = '.';
+		var fraction = digits % divisor;
+		var end = position + fractionDigits;
+		for (int i = end - 1; i >= position; --i) {
+			buffer[i] = (char) ('0' + fraction % 10);
+			fraction /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * @return {@literal true} for an optional sign followed by 1 to {@value #MAX_PLAIN_DIGITS} ASCII digits
+	 */
+	private static boolean isPlainInteger(char[] chars, int offset, int length) {
+
+		var start = length > 0 && (chars[offset] == '-' || chars[offset] == '+') ? offset + 1 : offset;
+		var end = offset + length;
+		if (start == end || end - start > MAX_PLAIN_DIGITS) {
+			return false;
+		}
+		for (int i = start; i < end; ++i) {
+			if (chars[i] < '0' || chars[i] > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long parsePlainInteger(char[] chars, int offset, int length) {
+
+		var negative = chars[offset] == '-';
+		var start = negative || chars[offset] == '+' ? offset + 1 : offset;
+		var value = 0L;
+		for (int i = start; i < offset + length; ++i) {
+			value = value * 10 + (chars[i] - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return {@literal false} if the value contains a char that cannot be part of a long
+	 */
+	static boolean mayBeLong(char[] chars, int offset, int length) {
+
+		for (int i = offset; i < offset + length; ++i) {
+			var c = chars[i];
+			if (c == '.' || c == 'e' || c == 'E') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int numberOfDigits(long value) {
+
+		var digits = 1;
+		while (value >= 10) {
+			value /= 10;
+			++digits;
+		}
+		return digits;
+	}
+
+	private JoltNumberCodec() {
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+/**
+ * Parses numbers with {@link JoltNumberCodec} directly from the text buffer of the parser, regardless whether they
+ * have been written as strings or as JSON numbers.
+ *
+ * @param <T> The type of number being read
+ */
+final class JoltNumberDeserializer<T> extends StdScalarDeserializer<T> {
+
+	@FunctionalInterface
+	interface Parser<T> {
+
+		T parse(char[] chars, int offset, int length);
+	}
+
+	private final Parser<T> parser;
+
+	JoltNumberDeserializer(Class<T> type, Parser<T> parser) {
+		super(type);
+		this.parser = parser;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+
+		var token = p.currentToken();
+		if (token == JsonToken.VALUE_STRING || token.isNumeric()) {
+			return parser.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+		}
+		return (T) ctxt.handleUnexpectedToken(handledType(), p);
+	}
+}
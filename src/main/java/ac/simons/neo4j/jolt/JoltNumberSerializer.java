@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Writes integral and floating point numbers as strings, formatted by {@link JoltNumberCodec} into a per-thread
+ * buffer.
+ *
+ * @param <T> The type of number being written
+ */
+final class JoltNumberSerializer<T extends Number> extends StdScalarSerializer<T> {
+
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[JoltNumberCodec.MAX_LENGTH]);
+
+	private final boolean floatingPoint;
+
+	/**
+	 * @param floatingPoint {@literal true} to format the values as doubles, {@literal false} to format them as longs
+	 */
+	JoltNumberSerializer(Class<T> type, boolean floatingPoint) {
+		super(type);
+		this.floatingPoint = floatingPoint;
+	}
+
+	@Override
+	public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+		var buffer = BUFFER.get();
+		var length = floatingPoint ?
+			JoltNumberCodec.formatDouble(value.doubleValue(), buffer, 0) :
+			JoltNumberCodec.formatLong(value.longValue(), buffer, 0);
+		generator.writeString(buffer, 0, length);
+	}
+}
@@ -52,7 +52,7 @@ final class JoltPathSerializer extends StdScalarSerializer<Path>
                 Node node = (Node) entity;
                 lastNodeId = node.getId();
 
-                generator.writeObject( node );
+                provider.defaultSerializeValue( node, generator );
             }
             else if ( entity instanceof Relationship )
             {
@@ -61,11 +61,11 @@ final class JoltPathSerializer extends StdScalarSerializer<Path>
                 if ( rel.getStartNodeId() != lastNodeId )
                 {
                     // we want a reversed relationship here so the path flows correctly
-                    generator.writeObject( JoltRelationship.fromRelationshipReversed( rel ) );
+                    provider.defaultSerializeValue( JoltRelationship.fromRelationshipReversed( rel ), generator );
                 }
                 else
                 {
-                    generator.writeObject( rel );
+                    provider.defaultSerializeValue( rel, generator );
                 }
             }
         }
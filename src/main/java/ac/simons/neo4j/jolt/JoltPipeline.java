@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.VarHandle;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.graphdb.Result;
+
+/**
+ * Overlaps query execution and encoding: Rows are pulled from a {@link Result} on the calling thread, usually the
+ * one owning the transaction, and encoded on a dedicated encoder thread. Entities are snapshotted while the
+ * transaction is still open, with exactly the ids, labels, types and properties Jolt needs, so the transaction can be
+ * closed as soon as {@link #drain(Result)} returns, while the encoder may still be writing.
+ * <p>
+ * Rows are handed over through a bounded, lock-free single producer, single consumer ring buffer. When the buffer is
+ * full, the transaction thread waits for the encoder, so that a slow consumer of the output cannot make the snapshots
+ * pile up in memory. Both threads spin briefly when they have to wait and park afterwards, until the other side has
+ * made progress and unparks them. Each row is written as one record with a {@link JoltRecordWriter}, as a map from column name to
+ * value, in the order of the columns.
+ * <p>
+ * {@link #drain(Result)} may be called any number of times from one thread. {@link #close()} must be called from the
+ * same thread afterwards. It waits until all rows have been written and reports a failure of the encoder.
+ */
+public final class JoltPipeline implements AutoCloseable {
+
+	/**
+	 * The default number of rows that can be waiting for the encoder.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final ThreadFactory DEFAULT_THREAD_FACTORY = runnable -> {
+		var thread = new Thread(runnable, "jolt-encoder");
+		thread.setDaemon(true);
+		return thread;
+	};
+
+	private static final Object END_OF_ROWS = new Object();
+
+	private static final int SPINS_BEFORE_PARKING = 128;
+
+	private final JoltRecordWriter writer;
+
+	private final JoltRingBuffer<Object> rows;
+
+	private final Thread encoder;
+
+	private volatile Throwable encoderFailure;
+
+	private volatile boolean aborted;
+
+	/**
+	 * The producer parked on a full buffer, if any.
+	 */
+	private volatile Thread waitingProducer;
+
+	/**
+	 * Set while the encoder is parked on an empty buffer.
+	 */
+	private volatile boolean encoderWaiting;
+
+	private boolean closed;
+
+	/**
+	 * Creates a pipeline with the default capacity, encoding on a new daemon thread.
+	 *
+	 * @param writer Receives the rows on the encoder thread, flushed but not closed by {@link #close()}
+	 */
+	public JoltPipeline(JoltRecordWriter writer) {
+		this(writer, DEFAULT_CAPACITY, DEFAULT_THREAD_FACTORY);
+	}
+
+	/**
+	 * Creates a pipeline and starts its encoder thread.
+	 *
+	 * @param writer        Receives the rows on the encoder thread, flushed but not closed by {@link #close()}
+	 * @param capacity      The number of rows that can be waiting for the encoder, rounded up to a power of two
+	 * @param threadFactory Creates the encoder thread
+	 */
+	public JoltPipeline(JoltRecordWriter writer, int capacity, ThreadFactory threadFactory) {
+
+		this.writer = writer;
+		this.rows = new JoltRingBuffer<>(capacity);
+		this.encoder = threadFactory.newThread(this::encode);
+		this.encoder.start();
+	}
+
+	/**
+	 * Pulls all rows from the result, snapshots them and hands them to the encoder. Returns as soon as the last row
+	 * has been handed over, the result and its transaction are not used afterwards.
+	 *
+	 * @param result The result to drain, must be used from the calling thread only
+	 * @return The number of rows drained
+	 * @throws IOException if the encoder failed or the calling thread has been interrupted
+	 */
+	public long drain(Result result) throws IOException {
+
+		if (closed) {
+			throw new IOException("Pipeline closed.");
+		}
+
+		var columns = result.columns();
+		var rowCount = 0L;
+		while (result.hasNext()) {
+			var row = result.next();
+			var detached = new LinkedHashMap<String, Object>(Math.max(16, (int) (columns.size() / 0.75f) + 1));
+			for (String column : columns) {
+				detached.put(column, JoltDetachedEntities.detach(row.get(column)));
+			}
+			put(detached);
+			++rowCount;
+		}
+		return rowCount;
+	}
+
+	/**
+	 * Waits until the encoder has written all rows drained so far and flushes the writer.
+	 *
+	 * @throws IOException if the encoder or the writer failed or the calling thread has been interrupted
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (!closed) {
+			closed = true;
+			try {
+				put(END_OF_ROWS);
+			} catch (InterruptedIOException e) {
+				abort();
+				throw e;
+			} catch (IOException e) {
+				// The encoder failed and is reported below
+			}
+		}
+
+		try {
+			encoder.join();
+		} catch (InterruptedException e) {
+			abort();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the encoder.");
+		}
+
+		checkEncoder();
+		writer.flush();
+	}
+
+	private void put(Object row) throws IOException {
+
+		var spins = 0;
+		while (!rows.offer(row)) {
+			checkEncoder();
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the encoder.");
+			}
+			if (spins < SPINS_BEFORE_PARKING) {
+				Thread.onSpinWait();
+				++spins;
+			} else {
+				awaitEncoder();
+			}
+		}
+		signalEncoder();
+	}
+
+	/**
+	 * Parks the producer until the encoder has taken a row or failed. The flag is published before the buffer is
+	 * checked again, and the encoder checks the flag after taking a row, so one of both always sees the other.
+	 */
+	private void awaitEncoder() {
+
+		waitingProducer = Thread.currentThread();
+		VarHandle.fullFence();
+		if (rows.isFull() && encoderFailure == null) {
+			LockSupport.park(this);
+		}
+		waitingProducer = null;
+	}
+
+	private void signalEncoder() {
+
+		VarHandle.fullFence();
+		if (encoderWaiting) {
+			LockSupport.unpark(encoder);
+		}
+	}
+
+	private void awaitRows() {
+
+		encoderWaiting = true;
+		VarHandle.fullFence();
+		if (rows.isEmpty() && !aborted) {
+			LockSupport.park(this);
+		}
+		encoderWaiting = false;
+	}
+
+	private void signalProducer() {
+
+		VarHandle.fullFence();
+		var producer = waitingProducer;
+		if (producer != null) {
+			LockSupport.unpark(producer);
+		}
+	}
+
+	private void abort() {
+
+		aborted = true;
+		LockSupport.unpark(encoder);
+	}
+
+	private void checkEncoder() throws IOException {
+
+		var failure = encoderFailure;
+		if (failure != null) {
+			throw new IOException("Could not encode row", failure);
+		}
+	}
+
+	private void encode() {
+
+		try {
+			var spins = 0;
+			while (!aborted) {
+				var row = rows.poll();
+				if (row == null) {
+					if (spins < SPINS_BEFORE_PARKING) {
+						Thread.onSpinWait();
+						++spins;
+					} else {
+						awaitRows();
+					}
+					continue;
+				}
+				signalProducer();
+				if (row == END_OF_ROWS) {
+					return;
+				}
+				spins = 0;
+				writer.write(row);
+			}
+		} catch (Throwable e) {
+			encoderFailure = e;
+			signalProducer();
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads Jolt input token by token and reports the values to a {@link JoltVisitor}, without going through databind.
+ * Every sigil is understood, in strict as well as in sparse mode. Nothing is materialized apart from binary values,
+ * labels, relationship types and keys.
+ * <p>
+ * A parser without a {@link JoltKeyDictionary} is stateless and can be shared. A parser with a dictionary must be used
+ * for a single response only, as the dictionary is filled while reading.
+ */
+public final class JoltPushParser {
+
+	private final JsonFactory factory;
+
+	private final JoltKeyDictionary keyDictionary;
+
+	/**
+	 * Creates a new parser for input without a key dictionary.
+	 *
+	 * @param codec The codec whose factory is used to create the underlying parsers
+	 */
+	public JoltPushParser(JoltCodec codec) {
+		this(codec, null);
+	}
+
+	/**
+	 * Creates a new parser for input written with a key dictionary.
+	 *
+	 * @param codec         The codec whose factory is used to create the underlying parsers
+	 * @param keyDictionary The dictionary to decode keys with, may be {@literal null}
+	 * @see JoltCodec#writerWithKeyDictionary()
+	 */
+	public JoltPushParser(JoltCodec codec, JoltKeyDictionary keyDictionary) {
+		this.factory = codec.getFactory();
+		this.keyDictionary = keyDictionary;
+	}
+
+	/**
+	 * Reports all top-level values of the given input.
+	 *
+	 * @param in      The input, will be closed afterwards
+	 * @param visitor The visitor receiving the values
+	 * @return The number of top-level values read
+	 * @throws IOException if the input cannot be read, is not valid Jolt, or the visitor fails
+	 */
+	public long parse(InputStream in, JoltVisitor visitor) throws IOException {
+
+		try (var parser = factory.createParser(in)) {
+			var count = 0L;
+			while (parseNext(parser, visitor)) {
+				++count;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Reports the next top-level value of the given parser.
+	 *
+	 * @param parser  The parser positioned before a value
+	 * @param visitor The visitor receiving the value
+	 * @return {@literal false} if the input is exhausted
+	 * @throws IOException if the input cannot be read, is not valid Jolt, or the visitor fails
+	 */
+	public boolean parseNext(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		var token = parser.nextToken();
+		if (token == null) {
+			return false;
+		}
+		visitValue(parser, token, visitor);
+		return true;
+	}
+
+	private void visitValue(JsonParser parser, JsonToken token, JoltVisitor visitor) throws IOException {
+
+		switch (token) {
+			case VALUE_NULL:
+				visitor.onNull();
+				break;
+			case VALUE_TRUE:
+				visitor.onBoolean(true);
+				break;
+			case VALUE_FALSE:
+				visitor.onBoolean(false);
+				break;
+			case VALUE_NUMBER_INT:
+				visitor.onInteger(parser.getLongValue());
+				break;
+			case VALUE_NUMBER_FLOAT:
+				visitor.onReal(parser.getDoubleValue());
+				break;
+			case VALUE_STRING:
+				visitor.onString(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+				break;
+			case START_ARRAY:
+				visitList(parser, visitor);
+				break;
+			case START_OBJECT:
+				visitTyped(parser, visitor);
+				break;
+			default:
+				throw new JsonParseException(parser, "Unexpected token " + token + ".");
+		}
+	}
+
+	private void visitTyped(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		if (parser.nextToken() != JsonToken.FIELD_NAME) {
+			throw new JsonParseException(parser, "Expected a sigil.");
+		}
+
+		Sigil sigil;
+		try {
+			sigil = Sigil.ofLiteral(parser.getCurrentName());
+		} catch (IllegalArgumentException e) {
+			throw new JsonParseException(parser, e.getMessage(), e);
+		}
+
+		var token = parser.nextToken();
+		switch (sigil) {
+			case INTEGER:
+				visitNumber(parser, token, visitor, true);
+				break;
+			case REAL:
+				visitNumber(parser, token, visitor, false);
+				break;
+			case UNICODE:
+				expect(parser, token, JsonToken.VALUE_STRING);
+				visitor.onString(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+				break;
+			case BINARY:
+				expect(parser, token, JsonToken.VALUE_STRING);
+				visitor.onBinary(fromHex(parser, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+				break;
+			case BINARY_BASE64:
+				expect(parser, token, JsonToken.VALUE_STRING);
+				visitor.onBinary(parser.getBinaryValue(Base64Variants.MIME_NO_LINEFEEDS));
+				break;
+			case LIST:
+				expect(parser, token, JsonToken.START_ARRAY);
+				visitList(parser, visitor);
+				break;
+			case MAP:
+				expect(parser, token, JsonToken.START_OBJECT);
+				visitMap(parser, visitor);
+				break;
+			case TIME:
+			case TEMPORAL_AMOUNT:
+				expect(parser, token, JsonToken.VALUE_STRING);
+				visitor.onTemporal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+				break;
+			case SPATIAL:
+				expect(parser, token, JsonToken.VALUE_STRING);
+				visitor.onSpatial(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+				break;
+			case NODE:
+				expect(parser, token, JsonToken.START_ARRAY);
+				visitNode(parser, visitor);
+				break;
+			case RELATIONSHIP:
+			case RELATIONSHIP_REVERSED:
+				expect(parser, token, JsonToken.START_ARRAY);
+				visitRelationship(parser, visitor, sigil == Sigil.RELATIONSHIP_REVERSED);
+				break;
+			case PATH:
+				expect(parser, token, JsonToken.START_ARRAY);
+				visitPath(parser, visitor);
+				break;
+			case BOOLEAN:
+				visitBoolean(parser, token, visitor);
+				break;
+			case NULL:
+				if (token.isStructStart()) {
+					throw new JsonParseException(parser, "Expected a scalar value for a null.");
+				}
+				visitor.onNull();
+				break;
+			default:
+				throw new JsonParseException(parser, "Unsupported sigil '" + sigil.getValue() + "'.");
+		}
+
+		if (parser.nextToken() != JsonToken.END_OBJECT) {
+			throw new JsonParseException(parser, "Expected the end of the value with sigil '" + sigil.getValue() + "'.");
+		}
+	}
+
+	private static void visitNumber(JsonParser parser, JsonToken token, JoltVisitor visitor, boolean integral)
+		throws IOException {
+
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			visitor.onInteger(parser.getLongValue());
+			return;
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+			visitor.onReal(parser.getDoubleValue());
+			return;
+		}
+		expect(parser, token, JsonToken.VALUE_STRING);
+
+		var chars = parser.getTextCharacters();
+		var offset = parser.getTextOffset();
+		var length = parser.getTextLength();
+		try {
+			if (integral) {
+				visitor.onInteger(JoltNumberCodec.parseLong(chars, offset, length));
+			} else if (JoltNumberCodec.mayBeLong(chars, offset, length)) {
+				visitReal(chars, offset, length, visitor);
+			} else {
+				visitor.onReal(JoltNumberCodec.parseDouble(chars, offset, length));
+			}
+		} catch (NumberFormatException e) {
+			throw new JsonParseException(parser, "Invalid number '" + new String(chars, offset, length) + "'.", e);
+		}
+	}
+
+	/**
+	 * Same order as {@link JoltNumberCodec#parseNumber(char[], int, int)}: A long if possible, a double otherwise.
+	 */
+	private static void visitReal(char[] chars, int offset, int length, JoltVisitor visitor) throws IOException {
+
+		long value;
+		try {
+			value = JoltNumberCodec.parseLong(chars, offset, length);
+		} catch (NumberFormatException e) {
+			visitor.onReal(JoltNumberCodec.parseDouble(chars, offset, length));
+			return;
+		}
+		visitor.onInteger(value);
+	}
+
+	private static void visitBoolean(JsonParser parser, JsonToken token, JoltVisitor visitor) throws IOException {
+
+		if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+			visitor.onBoolean(token == JsonToken.VALUE_TRUE);
+			return;
+		}
+		expect(parser, token, JsonToken.VALUE_STRING);
+
+		// Same as Boolean.parseBoolean
+		var chars = parser.getTextCharacters();
+		var offset = parser.getTextOffset();
+		var value = parser.getTextLength() == 4
+			&& Character.toLowerCase(chars[offset]) == 't'
+			&& Character.toLowerCase(chars[offset + 1]) == 'r'
+			&& Character.toLowerCase(chars[offset + 2]) == 'u'
+			&& Character.toLowerCase(chars[offset + 3]) == 'e';
+		visitor.onBoolean(value);
+	}
+
+	private void visitList(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		visitor.onListStart();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			visitValue(parser, token, visitor);
+		}
+		visitor.onListEnd();
+	}
+
+	private void visitMap(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		visitor.onMapStart();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			visitor.onMapKey(decodeKey(parser));
+			visitValue(parser, parser.nextToken(), visitor);
+		}
+		visitor.onMapEnd();
+	}
+
+	private void visitNode(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		visitor.onNodeStart(nextLong(parser));
+
+		expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			expect(parser, token, JsonToken.VALUE_STRING);
+			visitor.onLabel(parser.getText());
+		}
+
+		visitProperties(parser, visitor);
+		expect(parser, parser.nextToken(), JsonToken.END_ARRAY);
+		visitor.onNodeEnd();
+	}
+
+	private void visitRelationship(JsonParser parser, JoltVisitor visitor, boolean reversed) throws IOException {
+
+		var id = nextLong(parser);
+		var first = nextLong(parser);
+		expect(parser, parser.nextToken(), JsonToken.VALUE_STRING);
+		var type = parser.getText();
+		var second = nextLong(parser);
+
+		// Reversed relationships are written in the direction they are traversed
+		if (reversed) {
+			visitor.onRelationshipStart(id, second, type, first);
+		} else {
+			visitor.onRelationshipStart(id, first, type, second);
+		}
+
+		visitProperties(parser, visitor);
+		expect(parser, parser.nextToken(), JsonToken.END_ARRAY);
+		visitor.onRelationshipEnd();
+	}
+
+	private void visitPath(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		visitor.onPathStart();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			expect(parser, token, JsonToken.START_OBJECT);
+			visitTyped(parser, visitor);
+		}
+		visitor.onPathEnd();
+	}
+
+	private void visitProperties(JsonParser parser, JoltVisitor visitor) throws IOException {
+
+		expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			visitor.onProperty(decodeKey(parser));
+			visitValue(parser, parser.nextToken(), visitor);
+		}
+	}
+
+	private String decodeKey(JsonParser parser) throws IOException {
+
+		var key = parser.getCurrentName();
+		if (keyDictionary == null) {
+			return key;
+		}
+		try {
+			return keyDictionary.decode(key);
+		} catch (IllegalArgumentException e) {
+			throw new JsonParseException(parser, e.getMessage(), e);
+		}
+	}
+
+	private static long nextLong(JsonParser parser) throws IOException {
+
+		expect(parser, parser.nextToken(), JsonToken.VALUE_NUMBER_INT);
+		return parser.getLongValue();
+	}
+
+	private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+
+		if (actual != expected) {
+			throw new JsonParseException(parser, "Expected " + expected + " but got " + actual + ".");
+		}
+	}
+
+	private static byte[] fromHex(JsonParser parser, char[] chars, int offset, int length) throws JsonParseException {
+
+		if (length % 2 != 0) {
+			throw new JsonParseException(parser, "Hex encoded binary value must have an even length.");
+		}
+
+		var bytes = new byte[length / 2];
+		for (int i = 0; i < bytes.length; ++i) {
+			var high = Character.digit(chars[offset + 2 * i], 16);
+			var low = Character.digit(chars[offset + 2 * i + 1], 16);
+			if (high < 0 || low < 0) {
+				throw new JsonParseException(parser, "Invalid hex encoded binary value.");
+			}
+			bytes[i] = (byte) (high << 4 | low);
+		}
+		return bytes;
+	}
+}
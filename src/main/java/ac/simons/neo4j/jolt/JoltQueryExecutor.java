@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Runs independent queries concurrently, each one in its own transaction on its own virtual thread, and streams
+ * their results into separate sinks. Blocking on a slow sink only parks the virtual thread of that query, so many
+ * small queries can overlap without a platform thread for each of them.
+ * <p>
+ * At most {@code maxConcurrentQueries} queries are running at the same time, further queries wait for a permit
+ * without holding a transaction. Each row is written as one record with a {@link JoltRecordWriter}, as a map from
+ * column name to value, in the order of the columns.
+ * <p>
+ * Cancelling the future of a query terminates its transaction instead of interrupting its thread: An interrupt
+ * closes any {@link java.nio.channels.FileChannel} the thread is blocked on, including the ones of the database.
+ * The sink is closed once the query has stopped.
+ */
+public final class JoltQueryExecutor implements AutoCloseable {
+
+	private final GraphDatabaseService databaseService;
+
+	private final JoltCodec codec;
+
+	private final Semaphore permits;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param databaseService      The database to run the queries against
+	 * @param codec                The codec used to encode the rows
+	 * @param maxConcurrentQueries The maximum number of queries running at the same time
+	 */
+	public JoltQueryExecutor(GraphDatabaseService databaseService, JoltCodec codec, int maxConcurrentQueries) {
+
+		if (maxConcurrentQueries <= 0) {
+			throw new IllegalArgumentException("The maximum number of concurrent queries must be positive.");
+		}
+		this.databaseService = databaseService;
+		this.codec = codec;
+		this.permits = new Semaphore(maxConcurrentQueries, true);
+		this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jolt-query-", 0).factory());
+	}
+
+	/**
+	 * Submits a query. The returned future completes with the number of rows written once the transaction has been
+	 * committed and the sink has been closed, or exceptionally if the query or writing to the sink failed.
+	 *
+	 * @param query      The query to run
+	 * @param parameters The parameters of the query
+	 * @param sink       Receives the rows, will be closed when the query has stopped
+	 * @return A future for the number of rows written, cancelling it terminates the transaction of the query
+	 * @throws RejectedExecutionException if this executor has already been closed
+	 */
+	public Future<Long> submit(String query, Map<String, Object> parameters, OutputStream sink) {
+
+		var execution = new Execution(query, parameters, sink);
+		var task = new FutureTask<>(execution) {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+
+				var cancelled = super.cancel(false);
+				if (cancelled) {
+					execution.terminate();
+				}
+				return cancelled;
+			}
+		};
+		executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Stops accepting new queries and waits until all submitted queries have stopped.
+	 */
+	@Override
+	public void close() {
+		executor.close();
+	}
+
+	private final class Execution implements Callable<Long> {
+
+		private final String query;
+
+		private final Map<String, Object> parameters;
+
+		private final OutputStream sink;
+
+		private volatile boolean terminated;
+
+		private volatile Transaction transaction;
+
+		Execution(String query, Map<String, Object> parameters, OutputStream sink) {
+			this.query = query;
+			this.parameters = parameters;
+			this.sink = sink;
+		}
+
+		@Override
+		public Long call() throws IOException, InterruptedException {
+
+			try (var writer = new JoltRecordWriter(codec, sink)) {
+				permits.acquire();
+				try {
+					return run(writer);
+				} finally {
+					permits.release();
+				}
+			}
+		}
+
+		private long run(JoltRecordWriter writer) throws IOException {
+
+			if (terminated) {
+				return 0L;
+			}
+			try (var tx = databaseService.beginTx()) {
+				transaction = tx;
+				// Termination might have been requested before the transaction was visible
+				if (terminated) {
+					tx.terminate();
+				}
+
+				var result = tx.execute(query, parameters);
+				var columns = result.columns();
+				var rowCount = 0L;
+				while (result.hasNext()) {
+					// Queries that don't access the store never notice the termination themselves
+					if (terminated) {
+						return rowCount;
+					}
+					var row = result.next();
+					var ordered = new LinkedHashMap<String, Object>(Math.max(16, (int) (columns.size() / 0.75f) + 1));
+					for (String column : columns) {
+						ordered.put(column, row.get(column));
+					}
+					writer.write(ordered);
+					++rowCount;
+				}
+				tx.commit();
+				return rowCount;
+			} finally {
+				transaction = null;
+			}
+		}
+
+		void terminate() {
+
+			terminated = true;
+			var tx = transaction;
+			if (tx != null) {
+				tx.terminate();
+			}
+		}
+	}
+}
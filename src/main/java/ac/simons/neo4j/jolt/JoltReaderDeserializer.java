@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+
+/**
+ * Provides string values as {@link Reader}. The text is copied from the parser's segmented buffer into chunks of
+ * {@value #CHUNK_SIZE} characters, so that even huge values never require a single large {@link String} or
+ * {@code char[]}.
+ * <p>
+ * This is not streaming: Jackson reads the complete string into its buffer before any of it can be copied, so while
+ * a value is deserialized it is held twice, once in the parser's buffer and once in the chunks. Only the chunks are
+ * kept afterwards. Use {@link JoltDecodingLimits} to bound the length of strings from untrusted input.
+ */
+final class JoltReaderDeserializer extends StdScalarDeserializer<Reader> {
+
+	static final int CHUNK_SIZE = 8 * 1024;
+
+	JoltReaderDeserializer() {
+		super(Reader.class);
+	}
+
+	@Override
+	public Reader deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+
+		var chunks = new ChunkedCharArrayWriter();
+		p.getText(chunks);
+		return chunks.toReader();
+	}
+
+	@Override
+	public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer)
+		throws IOException {
+
+		// Plain strings without a sigil, as written in sparse mode
+		if (p.hasToken(JsonToken.VALUE_STRING)) {
+			return deserialize(p, ctxt);
+		}
+		return super.deserializeWithType(p, ctxt, typeDeserializer);
+	}
+
+	static final class ChunkedCharArrayWriter extends Writer {
+
+		private final List<char[]> chunks = new ArrayList<>();
+
+		private int lastChunkLength = CHUNK_SIZE;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+
+			while (len > 0) {
+				if (lastChunkLength == CHUNK_SIZE) {
+					chunks.add(new char[CHUNK_SIZE]);
+					lastChunkLength = 0;
+				}
+				int n = Math.min(len, CHUNK_SIZE - lastChunkLength);
+				System.arraycopy(cbuf, off, chunks.get(chunks.size() - 1), lastChunkLength, n);
+				lastChunkLength += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		Reader toReader() {
+			return new ChunkedCharArrayReader(chunks, chunks.isEmpty() ? 0 : lastChunkLength);
+		}
+	}
+
+	static final class ChunkedCharArrayReader extends Reader {
+
+		private final List<char[]> chunks;
+
+		private final int lastChunkLength;
+
+		private int chunk;
+
+		private int position;
+
+		ChunkedCharArrayReader(List<char[]> chunks, int lastChunkLength) {
+			this.chunks = chunks;
+			this.lastChunkLength = lastChunkLength;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+
+			if (len == 0) {
+				return 0;
+			}
+
+			int read = 0;
+			while (read < len && chunk < chunks.size()) {
+				int available = (chunk == chunks.size() - 1 ? lastChunkLength : CHUNK_SIZE) - position;
+				int n = Math.min(len - read, available);
+				System.arraycopy(chunks.get(chunk), position, cbuf, off + read, n);
+				read += n;
+				position += n;
+				if (position == CHUNK_SIZE) {
+					chunks.set(chunk, null);
+					++chunk;
+					position = 0;
+				} else if (n == available) {
+					++chunk;
+				}
+			}
+			return read == 0 ? -1 : read;
+		}
+
+		@Override
+		public void close() {
+			chunk = chunks.size();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Writes the content of a {@link Reader} as a string, chunk by chunk, without materializing it. The reader is consumed
+ * but not closed. Like strings, the content is only wrapped in a sigil in strict mode.
+ */
+final class JoltReaderSerializer extends StdScalarSerializer<Reader>
+{
+    private final boolean strictModeEnabled;
+
+    JoltReaderSerializer( boolean strictModeEnabled )
+    {
+        super( Reader.class );
+        this.strictModeEnabled = strictModeEnabled;
+    }
+
+    @Override
+    public void serialize( Reader value, JsonGenerator generator, SerializerProvider provider ) throws IOException
+    {
+        generator.writeString( value, -1 );
+    }
+
+    @Override
+    public void serializeWithType( Reader value, JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer )
+            throws IOException
+    {
+        if ( strictModeEnabled )
+        {
+            super.serializeWithType( value, generator, provider, typeSerializer );
+        }
+        else
+        {
+            serialize( value, generator, provider );
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Reads files written by {@link JoltRecordWriter}. The file is memory-mapped in segments that always end at a record
+ * boundary, so that each segment can be decoded on its own. The segments are decoded in parallel on the
+ * {@link java.util.concurrent.ForkJoinPool} the returned stream is evaluated in, which is the common pool unless
+ * the terminal operation is invoked from within another pool.
+ * <p>
+ * The mappings stay valid until they are garbage collected, the file itself is not kept open.
+ */
+public final class JoltRecordReader {
+
+	/**
+	 * The default target size of a segment.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+	private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+	private final JoltCodec codec;
+
+	private final List<MappedByteBuffer> segments;
+
+	/**
+	 * Maps the given file with the default segment size.
+	 *
+	 * @param codec The codec used to decode the records
+	 * @param file  The file to read
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public JoltRecordReader(JoltCodec codec, Path file) throws IOException {
+		this(codec, file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Maps the given file. Segments will be at least {@code segmentSize} bytes long, unless they are at the end of the
+	 * file, and extend to the end of the record in which that size is reached.
+	 *
+	 * @param codec       The codec used to decode the records
+	 * @param file        The file to read
+	 * @param segmentSize Target size of each segment in bytes
+	 * @throws IOException if the file cannot be mapped or contains a record that doesn't fit into a single mapping
+	 */
+	public JoltRecordReader(JoltCodec codec, Path file, int segmentSize) throws IOException {
+
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("Segment size must be positive.");
+		}
+
+		this.codec = codec;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.segments = mapSegments(channel, segmentSize);
+		}
+	}
+
+	/**
+	 * @return The number of segments the file has been split into
+	 */
+	public int getNumberOfSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Decodes all records of the file in parallel.
+	 *
+	 * @param recordType The type each record is decoded into
+	 * @param ordered    {@code true} if the stream should keep the order of the records in the file
+	 * @param <T>        The type of the records
+	 * @return A parallel stream of all records
+	 */
+	public <T> Stream<T> records(Class<T> recordType, boolean ordered) {
+
+		var reader = codec.readerFor(recordType);
+		Stream<T> records = segments.parallelStream().flatMap(segment -> decode(reader, segment));
+		return ordered ? records : records.unordered();
+	}
+
+	private static <T> Stream<T> decode(ObjectReader reader, ByteBuffer segment) {
+
+		MappingIterator<T> iterator;
+		try {
+			iterator = reader.readValues(new ByteBufferBackedInputStream(segment.duplicate()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(() -> {
+				try {
+					iterator.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+	}
+
+	private static List<MappedByteBuffer> mapSegments(FileChannel channel, int segmentSize) throws IOException {
+
+		var size = channel.size();
+		var result = new ArrayList<MappedByteBuffer>();
+		var scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+		var start = 0L;
+		while (start < size) {
+			var end = start + segmentSize >= size ? size : endOfRecord(channel, start + segmentSize, scanBuffer);
+			if (end - start > Integer.MAX_VALUE) {
+				throw new IOException("Record starting before offset " + (start + segmentSize) + " is too large to be mapped.");
+			}
+			result.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+			start = end;
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return the offset directly after the next record separator at or after {@code position}, or the size of the
+	 * file if there is none
+	 */
+	private static long endOfRecord(FileChannel channel, long position, ByteBuffer scanBuffer) throws IOException {
+
+		var offset = position;
+		while (true) {
+			scanBuffer.clear();
+			var read = channel.read(scanBuffer, offset);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; ++i) {
+				if (scanBuffer.get(i) == JoltRecordWriter.RECORD_SEPARATOR) {
+					return offset + i + 1;
+				}
+			}
+			offset += read;
+		}
+	}
+}
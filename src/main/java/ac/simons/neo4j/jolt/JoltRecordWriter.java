@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes Jolt values as newline-delimited records: Each record is written in compact form, without any line breaks,
+ * and is terminated by a single {@code '\n'}. As JSON escapes line breaks inside strings, a {@code '\n'} byte in the
+ * output always marks the end of a record, which allows readers to split the output into independent chunks
+ * without parsing it, see {@link JoltRecordReader}.
+ * <p>
+ * When records are flushed to the target stream is decided by a {@link JoltFlushPolicy}.
+ */
+public final class JoltRecordWriter implements Closeable, Flushable {
+
+	static final byte RECORD_SEPARATOR = '\n';
+
+	private final ObjectWriter writer;
+
+	private final CountingOutputStream out;
+
+	private final JsonGenerator generator;
+
+	private final JoltFlushPolicy flushPolicy;
+
+	private long recordCount;
+
+	private long recordCountAtLastFlush;
+
+	private long bytesAtLastFlush;
+
+	private long nanoTimeOfLastFlush;
+
+	/**
+	 * Creates a new record writer that only flushes when its buffer is full.
+	 *
+	 * @param codec The codec used to encode the records
+	 * @param out   The target stream, will be closed when this writer is closed
+	 * @throws IOException if the generator cannot be created
+	 */
+	public JoltRecordWriter(JoltCodec codec, OutputStream out) throws IOException {
+		this(codec, out, JoltFlushPolicy.whenBufferFull());
+	}
+
+	/**
+	 * Creates a new record writer.
+	 *
+	 * @param codec       The codec used to encode the records
+	 * @param out         The target stream, will be closed when this writer is closed
+	 * @param flushPolicy Decides when to flush records to the target stream
+	 * @throws IOException if the generator cannot be created
+	 */
+	public JoltRecordWriter(JoltCodec codec, OutputStream out, JoltFlushPolicy flushPolicy) throws IOException {
+		this.writer = codec.writer()
+			.without(SerializationFeature.INDENT_OUTPUT)
+			.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.out = new CountingOutputStream(out);
+		this.generator = codec.getFactory().createGenerator(this.out, JsonEncoding.UTF8);
+		this.generator.setRootValueSeparator(null);
+		this.flushPolicy = flushPolicy;
+		this.nanoTimeOfLastFlush = System.nanoTime();
+	}
+
+	/**
+	 * Writes one record.
+	 *
+	 * @param record The value to write as a record
+	 * @throws IOException if the value cannot be written
+	 */
+	public void write(Object record) throws IOException {
+		writer.writeValue(generator, record);
+		generator.writeRaw((char) RECORD_SEPARATOR);
+		++recordCount;
+
+		var unflushedRecords = recordCount - recordCountAtLastFlush;
+		var unflushedBytes = out.count + generator.getOutputBuffered() - bytesAtLastFlush;
+		var nanosSinceLastFlush = System.nanoTime() - nanoTimeOfLastFlush;
+		if (flushPolicy.shouldFlush(recordCount, unflushedRecords, unflushedBytes, nanosSinceLastFlush)) {
+			flush();
+		}
+	}
+
+	/**
+	 * @return The number of records written so far
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		generator.flush();
+		recordCountAtLastFlush = recordCount;
+		bytesAtLastFlush = out.count;
+		nanoTimeOfLastFlush = System.nanoTime();
+	}
+
+	@Override
+	public void close() throws IOException {
+		generator.close();
+	}
+
+	/**
+	 * Counts the bytes passed on to the target stream, so that the flush policy sees the bytes the generator has
+	 * already handed over as well as the ones still in its buffer.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
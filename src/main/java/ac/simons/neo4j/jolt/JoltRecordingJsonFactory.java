@@ -0,0 +1,511 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.DataInput;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.async.NonBlockingInputFeeder;
+import com.fasterxml.jackson.core.format.InputAccessor;
+import com.fasterxml.jackson.core.format.MatchStrength;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+/**
+ * The factory of each {@link JoltCodec}, emitting {@link JoltEvents} for its parsers and generators. Parsers and
+ * generators are only wrapped while a Flight Recorder recording has one of the events enabled, otherwise they are
+ * returned as created by Jackson and there is no overhead besides checking whether the events are enabled.
+ * <p>
+ * Sizes are taken from the locations reported by the parser and from the bytes the generator has handed to its
+ * target. Entities are counted by their sigils. Non-blocking parsers are recorded as well, their event spans all
+ * input fed until they are closed.
+ * <p>
+ * The factory is created without a codec, so that the {@link JoltCodec} using it becomes its codec.
+ */
+class JoltRecordingJsonFactory extends JsonFactory {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean strict;
+
+	JoltRecordingJsonFactory(boolean strict) {
+		this.strict = strict;
+	}
+
+	JoltRecordingJsonFactory(JoltRecordingJsonFactory source, ObjectCodec codec) {
+		super(source, codec);
+		this.strict = source.strict;
+	}
+
+	@Override
+	public JoltRecordingJsonFactory copy() {
+		return new JoltRecordingJsonFactory(this, null);
+	}
+
+	@Override
+	public String getFormatName() {
+		return FORMAT_NAME_JSON;
+	}
+
+	@Override
+	public MatchStrength hasFormat(InputAccessor acc) throws IOException {
+		return hasJSONFormat(acc);
+	}
+
+	@Override
+	protected JsonParser _createParser(InputStream in, IOContext ctxt) throws IOException {
+		return record(super._createParser(in, ctxt));
+	}
+
+	@Override
+	protected JsonParser _createParser(Reader r, IOContext ctxt) throws IOException {
+		return record(super._createParser(r, ctxt));
+	}
+
+	@Override
+	protected JsonParser _createParser(char[] data, int offset, int len, IOContext ctxt, boolean recyclable)
+		throws IOException {
+		return record(super._createParser(data, offset, len, ctxt, recyclable));
+	}
+
+	@Override
+	protected JsonParser _createParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException {
+		return record(super._createParser(data, offset, len, ctxt));
+	}
+
+	@Override
+	protected JsonParser _createParser(DataInput input, IOContext ctxt) throws IOException {
+		return record(super._createParser(input, ctxt));
+	}
+
+	@Override
+	public JsonParser createNonBlockingByteArrayParser() throws IOException {
+		return record(super.createNonBlockingByteArrayParser());
+	}
+
+	@Override
+	protected JsonGenerator _createGenerator(Writer out, IOContext ctxt) throws IOException {
+
+		var event = new JoltEvents.EncodeEvent();
+		var largeValues = new JoltEvents.LargeValueEvent().isEnabled();
+		if (!(event.isEnabled() || largeValues)) {
+			return super._createGenerator(out, ctxt);
+		}
+		event.begin();
+		var counter = new CountingWriter(out);
+		return new RecordingGenerator(super._createGenerator(counter, ctxt), counter::getCount, event, strict,
+			largeValues);
+	}
+
+	@Override
+	protected JsonGenerator _createUTF8Generator(OutputStream out, IOContext ctxt) throws IOException {
+
+		var event = new JoltEvents.EncodeEvent();
+		var largeValues = new JoltEvents.LargeValueEvent().isEnabled();
+		if (!(event.isEnabled() || largeValues)) {
+			return super._createUTF8Generator(out, ctxt);
+		}
+		event.begin();
+		var counter = new CountingOutputStream(out);
+		return new RecordingGenerator(super._createUTF8Generator(counter, ctxt), counter::getCount, event, strict,
+			largeValues);
+	}
+
+	private JsonParser record(JsonParser parser) {
+
+		var event = new JoltEvents.DecodeEvent();
+		var largeValues = new JoltEvents.LargeValueEvent().isEnabled();
+		if (!(event.isEnabled() || largeValues)) {
+			return parser;
+		}
+		event.begin();
+		return new RecordingParser(parser, event, strict, largeValues);
+	}
+
+	private static JsonStreamContext rootOf(JsonStreamContext context) {
+
+		var root = context;
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+		return root;
+	}
+
+	/**
+	 * Keeps track of the entities and the open Jolt values of one parser or generator.
+	 */
+	private static final class Tracker {
+
+		private final boolean encoding;
+
+		private final boolean largeValues;
+
+		private long nodes;
+
+		private long relationships;
+
+		private long paths;
+
+		private int depth;
+
+		private long[] starts = new long[16];
+
+		private String[] sigils = new String[16];
+
+		Tracker(boolean encoding, boolean largeValues) {
+			this.encoding = encoding;
+			this.largeValues = largeValues;
+		}
+
+		void start(long position) {
+
+			if (largeValues) {
+				if (depth == starts.length) {
+					starts = Arrays.copyOf(starts, depth * 2);
+					sigils = Arrays.copyOf(sigils, depth * 2);
+				}
+				starts[depth] = position;
+				sigils[depth] = null;
+			}
+			++depth;
+		}
+
+		void firstKey(String name) {
+
+			switch (name) {
+				case "()":
+					++nodes;
+					break;
+				case "->":
+				case "<-":
+					++relationships;
+					break;
+				case "..":
+					++paths;
+					break;
+				default:
+			}
+			if (largeValues && depth > 0 && Sigil.isLiteral(name)) {
+				sigils[depth - 1] = name;
+			}
+		}
+
+		void end(long position) {
+
+			if (depth == 0) {
+				return;
+			}
+			--depth;
+			if (!largeValues || sigils[depth] == null) {
+				return;
+			}
+			var size = position - starts[depth];
+			if (size < JoltEvents.sizeThreshold) {
+				return;
+			}
+			var event = new JoltEvents.LargeValueEvent();
+			event.bytes = size;
+			if (event.shouldCommit()) {
+				event.encoding = encoding;
+				event.sigil = sigils[depth];
+				event.depth = depth;
+				event.commit();
+			}
+		}
+	}
+
+	private static final class RecordingParser extends JsonParserDelegate {
+
+		private final JoltEvents.DecodeEvent event;
+
+		private final Tracker tracker;
+
+		private boolean committed;
+
+		RecordingParser(JsonParser delegate, JoltEvents.DecodeEvent event, boolean strict, boolean largeValues) {
+			super(delegate);
+			this.event = event;
+			this.event.strict = strict;
+			this.tracker = new Tracker(false, largeValues);
+		}
+
+		@Override
+		public JsonToken nextToken() throws IOException {
+			return observe(delegate.nextToken());
+		}
+
+		@Override
+		public JsonToken nextValue() throws IOException {
+
+			var token = nextToken();
+			if (token == JsonToken.FIELD_NAME) {
+				token = nextToken();
+			}
+			return token;
+		}
+
+		@Override
+		public boolean canParseAsync() {
+			return delegate.canParseAsync();
+		}
+
+		@Override
+		public NonBlockingInputFeeder getNonBlockingInputFeeder() {
+			return delegate.getNonBlockingInputFeeder();
+		}
+
+		@Override
+		public JsonParser skipChildren() throws IOException {
+
+			var token = delegate.currentToken();
+			delegate.skipChildren();
+			if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+				tracker.end(offset(delegate.getCurrentLocation()));
+			}
+			return this;
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			if (!committed) {
+				committed = true;
+				event.bytes = offset(delegate.getCurrentLocation());
+				event.rows = rootOf(delegate.getParsingContext()).getEntryCount();
+				event.nodes = tracker.nodes;
+				event.relationships = tracker.relationships;
+				event.paths = tracker.paths;
+				event.commit();
+			}
+			delegate.close();
+		}
+
+		private JsonToken observe(JsonToken token) throws IOException {
+
+			if (token == null) {
+				return null;
+			}
+			switch (token) {
+				case START_ARRAY:
+				case START_OBJECT:
+					tracker.start(tracker.largeValues ? offset(delegate.getTokenLocation()) : 0L);
+					break;
+				case END_ARRAY:
+				case END_OBJECT:
+					tracker.end(tracker.largeValues ? offset(delegate.getCurrentLocation()) : 0L);
+					break;
+				case FIELD_NAME:
+					if (delegate.getParsingContext().getCurrentIndex() == 0) {
+						tracker.firstKey(delegate.getCurrentName());
+					}
+					break;
+				default:
+			}
+			return token;
+		}
+
+		private static long offset(JsonLocation location) {
+			return Math.max(location.getByteOffset(), location.getCharOffset());
+		}
+	}
+
+	private static final class RecordingGenerator extends JsonGeneratorDelegate {
+
+		private final LongSupplier flushed;
+
+		private final JoltEvents.EncodeEvent event;
+
+		private final Tracker tracker;
+
+		private boolean committed;
+
+		RecordingGenerator(JsonGenerator delegate, LongSupplier flushed, JoltEvents.EncodeEvent event, boolean strict,
+			boolean largeValues) {
+			super(delegate, false);
+			this.flushed = flushed;
+			this.event = event;
+			this.event.strict = strict;
+			this.tracker = new Tracker(true, largeValues);
+		}
+
+		@Override
+		public void writeStartArray() throws IOException {
+			tracker.start(position());
+			delegate.writeStartArray();
+		}
+
+		@Override
+		public void writeStartArray(int size) throws IOException {
+			tracker.start(position());
+			delegate.writeStartArray(size);
+		}
+
+		@Override
+		public void writeStartArray(Object forValue) throws IOException {
+			tracker.start(position());
+			delegate.writeStartArray(forValue);
+		}
+
+		@Override
+		public void writeStartArray(Object forValue, int size) throws IOException {
+			tracker.start(position());
+			delegate.writeStartArray(forValue, size);
+		}
+
+		@Override
+		public void writeEndArray() throws IOException {
+			delegate.writeEndArray();
+			tracker.end(position());
+		}
+
+		@Override
+		public void writeStartObject() throws IOException {
+			tracker.start(position());
+			delegate.writeStartObject();
+		}
+
+		@Override
+		public void writeStartObject(Object forValue) throws IOException {
+			tracker.start(position());
+			delegate.writeStartObject(forValue);
+		}
+
+		@Override
+		public void writeStartObject(Object forValue, int size) throws IOException {
+			tracker.start(position());
+			delegate.writeStartObject(forValue, size);
+		}
+
+		@Override
+		public void writeEndObject() throws IOException {
+			delegate.writeEndObject();
+			tracker.end(position());
+		}
+
+		@Override
+		public void writeFieldName(String name) throws IOException {
+			delegate.writeFieldName(name);
+			if (delegate.getOutputContext().getCurrentIndex() == 0) {
+				tracker.firstKey(name);
+			}
+		}
+
+		@Override
+		public void writeFieldName(SerializableString name) throws IOException {
+			delegate.writeFieldName(name);
+			if (delegate.getOutputContext().getCurrentIndex() == 0) {
+				tracker.firstKey(name.getValue());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			var rows = rootOf(delegate.getOutputContext()).getEntryCount();
+			delegate.close();
+			if (!committed) {
+				committed = true;
+				event.bytes = flushed.getAsLong();
+				event.rows = rows;
+				event.nodes = tracker.nodes;
+				event.relationships = tracker.relationships;
+				event.paths = tracker.paths;
+				event.commit();
+			}
+		}
+
+		private long position() {
+			return tracker.largeValues ? flushed.getAsLong() + delegate.getOutputBuffered() : 0L;
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+
+	private static final class CountingWriter extends FilterWriter {
+
+		private long count;
+
+		CountingWriter(Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			out.write(c);
+			++count;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write(cbuf, off, len);
+			count += len;
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			out.write(str, off, len);
+			count += len;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+}
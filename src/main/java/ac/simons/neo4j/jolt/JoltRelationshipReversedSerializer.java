@@ -56,8 +56,8 @@ final class JoltRelationshipReversedSerializer extends StdScalarSerializer<JoltR
 
         for ( var entry : properties.entrySet() )
         {
-            generator.writeFieldName( entry.getKey() );
-            generator.writeObject( entry.getValue() );
+            generator.writeFieldName( JoltKeyDictionary.encode( provider, entry.getKey() ) );
+            provider.defaultSerializeValue( entry.getValue(), generator );
         }
 
         generator.writeEndObject();
@@ -39,6 +39,21 @@ final class JoltRelationshipSerializer extends StdScalarSerializer<Relationship>
     @Override
     public void serialize( Relationship relationship, JsonGenerator generator, SerializerProvider provider )
             throws IOException
+    {
+        var cache = JoltEntityCache.of( provider, generator );
+        if ( cache == null )
+        {
+            write( relationship, generator, provider );
+        }
+        else
+        {
+            generator.writeRawValue( cache.getRelationship( relationship.getId(),
+                    fragment -> write( relationship, fragment, provider ) ) );
+        }
+    }
+
+    private static void write( Relationship relationship, JsonGenerator generator, SerializerProvider provider )
+            throws IOException
     {
         generator.writeStartArray();
 
@@ -55,8 +70,8 @@ final class JoltRelationshipSerializer extends StdScalarSerializer<Relationship>
 
         for ( var entry : properties.entrySet() )
         {
-            generator.writeFieldName( entry.getKey() );
-            generator.writeObject( entry.getValue() );
+            generator.writeFieldName( JoltKeyDictionary.encode( provider, entry.getKey() ) );
+            provider.defaultSerializeValue( entry.getValue(), generator );
         }
 
         generator.writeEndObject();
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue for exactly one producer and one consumer thread. Each side only ever writes its own
+ * counter and reads the other side's counter with acquire semantics, so neither side needs a lock or a CAS.
+ *
+ * @param <E> The type of the elements
+ */
+final class JoltRingBuffer<E> {
+
+	private final Object[] elements;
+
+	private final int mask;
+
+	/**
+	 * Index of the next element to poll, only written by the consumer.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Index of the next element to offer, only written by the producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity The maximum number of elements, rounded up to the next power of two
+	 */
+	JoltRingBuffer(int capacity) {
+
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+		}
+		var size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.elements = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Must only be called from the producer thread.
+	 *
+	 * @param element The element to add, not {@literal null}
+	 * @return {@literal false} if the buffer is full
+	 */
+	boolean offer(E element) {
+
+		var t = tail.get();
+		if (t - head.getAcquire() == elements.length) {
+			return false;
+		}
+		elements[(int) t & mask] = element;
+		tail.setRelease(t + 1);
+		return true;
+	}
+
+	/**
+	 * Must only be called from the consumer thread.
+	 *
+	 * @return The oldest element or {@literal null} if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	E poll() {
+
+		var h = head.get();
+		if (h == tail.getAcquire()) {
+			return null;
+		}
+		var index = (int) h & mask;
+		var element = (E) elements[index];
+		elements[index] = null;
+		head.setRelease(h + 1);
+		return element;
+	}
+
+	/**
+	 * Must only be called from the producer thread.
+	 *
+	 * @return {@literal true} if no further element can be offered until the consumer polls one
+	 */
+	boolean isFull() {
+		return tail.get() - head.getAcquire() == elements.length;
+	}
+
+	/**
+	 * Must only be called from the consumer thread.
+	 *
+	 * @return {@literal true} if there is no element to poll until the producer offers one
+	 */
+	boolean isEmpty() {
+		return head.get() == tail.getAcquire();
+	}
+
+	/**
+	 * @return The number of elements that fit into the buffer
+	 */
+	int capacity() {
+		return elements.length;
+	}
+}
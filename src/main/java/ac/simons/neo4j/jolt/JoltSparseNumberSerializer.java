@@ -20,11 +20,12 @@
 package ac.simons.neo4j.jolt;
 
 import java.io.IOException;
-import java.util.function.Function;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 /**
@@ -36,22 +37,20 @@ final class JoltSparseNumberSerializer<T extends Number> extends StdSerializer<T
 {
     private final JsonSerializer<T> delegate;
     private final Sigil sigil;
-    private final Function<T,String> converter;
 
-    JoltSparseNumberSerializer( Class<T> t, Sigil sigil, Function<T,String> converter )
+    JoltSparseNumberSerializer( Class<T> t, Sigil sigil )
     {
         super( t );
         this.sigil = sigil;
-        this.converter = converter;
 
-        this.delegate = new JoltDelegatingValueSerializer<>( t, converter );
+        this.delegate = new JoltNumberSerializer<>( t, false );
     }
 
     @Override
     public void serialize( T value, JsonGenerator generator, SerializerProvider provider ) throws IOException
     {
         long longValue = value.longValue();
-        if ( longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE )
+        if ( isInIntegerRange( longValue ) )
         {
             generator.writeNumber( longValue );
         }
@@ -60,4 +59,24 @@ final class JoltSparseNumberSerializer<T extends Number> extends StdSerializer<T
             delegate.serialize( value, generator, provider );
         }
     }
+
+    @Override
+    public void serializeWithType( T value, JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer )
+            throws IOException
+    {
+        if ( isInIntegerRange( value.longValue() ) )
+        {
+            serialize( value, generator, provider );
+            return;
+        }
+
+        var typeId = typeSerializer.writeTypePrefix( generator, typeSerializer.typeId( value, JsonToken.VALUE_STRING ) );
+        delegate.serialize( value, generator, provider );
+        typeSerializer.writeTypeSuffix( generator, typeId );
+    }
+
+    private static boolean isInIntegerRange( long longValue )
+    {
+        return longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An output stage between a codec and a slow consumer: Everything written is buffered so that the writer never has to
+ * wait for the consumer, but at most {@code memoryLimit} bytes are kept in memory. Once that limit is reached, further
+ * output is appended to a temporary file until the consumer has caught up with everything spilled, after which
+ * output is buffered in memory again.
+ * <p>
+ * The buffered output is read through {@link #getInputStream()}, usually from another thread than the one writing.
+ * The input stream blocks until output is available and signals the end of the stream after this stream has been
+ * closed and everything has been read. Closing the input stream deletes the temporary file.
+ */
+public final class JoltSpillingOutputStream extends OutputStream {
+
+	/**
+	 * The default number of bytes kept in memory.
+	 */
+	public static final int DEFAULT_MEMORY_LIMIT = 4 * 1024 * 1024;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final int memoryLimit;
+
+	private final Path directory;
+
+	private final Deque<byte[]> chunks = new ArrayDeque<>();
+
+	/**
+	 * Read position in the first chunk.
+	 */
+	private int readPosition;
+
+	/**
+	 * Write position in the last chunk.
+	 */
+	private int writePosition = CHUNK_SIZE;
+
+	private int bufferedBytes;
+
+	private FileChannel spillFile;
+
+	private long spillReadPosition;
+
+	private long spillWritePosition;
+
+	private long spilledBytes;
+
+	private boolean closed;
+
+	private boolean released;
+
+	private final InputStream inputStream = new SpilledInputStream();
+
+	/**
+	 * Creates a stream with the default memory limit, spilling into the default temporary directory.
+	 */
+	public JoltSpillingOutputStream() {
+		this(DEFAULT_MEMORY_LIMIT, null);
+	}
+
+	/**
+	 * @param memoryLimit The maximum number of bytes kept in memory
+	 * @param directory   The directory for the temporary file, {@literal null} for the default temporary directory
+	 */
+	public JoltSpillingOutputStream(int memoryLimit, Path directory) {
+
+		if (memoryLimit < 0) {
+			throw new IllegalArgumentException("Memory limit must not be negative.");
+		}
+		this.memoryLimit = memoryLimit;
+		this.directory = directory;
+	}
+
+	/**
+	 * @return The stream to read everything written to this stream from
+	 */
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * @return The total number of bytes that have been written to the temporary file so far
+	 */
+	public synchronized long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+
+		if (closed) {
+			throw new IOException("Stream closed.");
+		}
+		if (released) {
+			throw new IOException("The input stream has been closed.");
+		}
+		if (len == 0) {
+			return;
+		}
+
+		if (spillWritePosition == 0 && bufferedBytes + len <= memoryLimit) {
+			buffer(b, off, len);
+		} else {
+			spill(b, off, len);
+		}
+		notifyAll();
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	private void buffer(byte[] b, int off, int len) {
+
+		var remaining = len;
+		while (remaining > 0) {
+			if (writePosition == CHUNK_SIZE) {
+				chunks.addLast(new byte[CHUNK_SIZE]);
+				writePosition = 0;
+			}
+			var n = Math.min(remaining, CHUNK_SIZE - writePosition);
+			System.arraycopy(b, off + len - remaining, chunks.getLast(), writePosition, n);
+			writePosition += n;
+			remaining -= n;
+		}
+		bufferedBytes += len;
+	}
+
+	private void spill(byte[] b, int off, int len) throws IOException {
+
+		if (spillFile == null) {
+			var file = directory == null ?
+				Files.createTempFile("jolt-", ".spill") :
+				Files.createTempFile(directory, "jolt-", ".spill");
+			spillFile = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+		}
+
+		var source = ByteBuffer.wrap(b, off, len);
+		while (source.hasRemaining()) {
+			spillWritePosition += spillFile.write(source, spillWritePosition);
+		}
+		spilledBytes += len;
+	}
+
+	private synchronized int read(byte[] b, int off, int len) throws IOException {
+
+		if (len == 0) {
+			return 0;
+		}
+
+		while (true) {
+			// Everything in memory has been written before anything in the spill file
+			if (bufferedBytes > 0) {
+				var first = chunks.getFirst();
+				var end = chunks.size() == 1 ? writePosition : CHUNK_SIZE;
+				var n = Math.min(len, end - readPosition);
+				System.arraycopy(first, readPosition, b, off, n);
+				readPosition += n;
+				bufferedBytes -= n;
+				if (readPosition == end) {
+					chunks.removeFirst();
+					readPosition = 0;
+					if (chunks.isEmpty()) {
+						writePosition = CHUNK_SIZE;
+					}
+				}
+				return n;
+			}
+
+			if (spillReadPosition < spillWritePosition) {
+				var target = ByteBuffer.wrap(b, off, (int) Math.min(len, spillWritePosition - spillReadPosition));
+				var n = spillFile.read(target, spillReadPosition);
+				spillReadPosition += n;
+				if (spillReadPosition == spillWritePosition) {
+					// The consumer has caught up, go back to memory and release the disk space
+					spillFile.truncate(0);
+					spillReadPosition = 0;
+					spillWritePosition = 0;
+				}
+				return n;
+			}
+
+			if (closed) {
+				return -1;
+			}
+
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for output.");
+			}
+		}
+	}
+
+	private synchronized void release() throws IOException {
+
+		released = true;
+		chunks.clear();
+		bufferedBytes = 0;
+		if (spillFile != null) {
+			spillFile.close();
+		}
+	}
+
+	private final class SpilledInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			var b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return JoltSpillingOutputStream.this.read(b, off, len);
+		}
+
+		@Override
+		public int available() {
+			synchronized (JoltSpillingOutputStream.this) {
+				var spilled = spillWritePosition - spillReadPosition;
+				return bufferedBytes > 0 ? bufferedBytes : (int) Math.min(Integer.MAX_VALUE, spilled);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			release();
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.neo4j.values.storable.DurationValue;
+
+/**
+ * Formats temporals and durations digit by digit into a char buffer. The output is the same as the one of the
+ * corresponding {@code DateTimeFormatter.ISO_*} formatter, respectively {@link DurationValue#toString()}, without
+ * creating any intermediate objects.
+ * <p>
+ * All methods write at the given position and return the position after the last char written. Callers must
+ * provide a buffer of at least {@link #MAX_LENGTH} chars, plus the length of the zone id for zoned date times.
+ */
+final class JoltTemporalFormatter {
+
+	/**
+	 * Maximum length of any formatted value, excluding a zone id.
+	 */
+	static final int MAX_LENGTH = 128;
+
+	private static final int NANOS_PER_SECOND = 1_000_000_000;
+
+	static int formatLocalDate(LocalDate value, char[] buffer, int position) {
+
+		var year = value.getYear();
+		if (year > 9999) {
+			buffer[position++] = '+';
+			position = JoltNumberCodec.formatLong(year, buffer, position);
+		} else if (year < 0) {
+			buffer[position++] = '-';
+			position = formatPadded(-year, 4, buffer, position);
+		} else {
+			position = formatPadded(year, 4, buffer, position);
+		}
+		buffer[position++] = '-';
+		position = formatPadded(value.getMonthValue(), 2, buffer, position);
+		buffer[position++] = '-';
+		return formatPadded(value.getDayOfMonth(), 2, buffer, position);
+	}
+
+	static int formatLocalTime(LocalTime value, char[] buffer, int position) {
+
+		position = formatPadded(value.getHour(), 2, buffer, position);
+		buffer[position++] = ':';
+		position = formatPadded(value.getMinute(), 2, buffer, position);
+		buffer[position++] = ':';
+		position = formatPadded(value.getSecond(), 2, buffer, position);
+		var nanos = value.getNano();
+		if (nanos > 0) {
+			position = formatFraction(nanos, buffer, position);
+		}
+		return position;
+	}
+
+	static int formatOffsetTime(OffsetTime value, char[] buffer, int position) {
+
+		position = formatLocalTime(value.toLocalTime(), buffer, position);
+		return formatOffset(value.getOffset(), buffer, position);
+	}
+
+	static int formatLocalDateTime(LocalDateTime value, char[] buffer, int position) {
+
+		position = formatLocalDate(value.toLocalDate(), buffer, position);
+		buffer[position++] = 'T';
+		return formatLocalTime(value.toLocalTime(), buffer, position);
+	}
+
+	static int formatZonedDateTime(ZonedDateTime value, char[] buffer, int position) {
+
+		position = formatLocalDateTime(value.toLocalDateTime(), buffer, position);
+		position = formatOffset(value.getOffset(), buffer, position);
+		var zone = value.getZone();
+		if (!(zone instanceof ZoneOffset)) {
+			buffer[position++] = '[';
+			position = formatString(zone.getId(), buffer, position);
+			buffer[position++] = ']';
+		}
+		return position;
+	}
+
+	static int formatDuration(DurationValue value, char[] buffer, int position) {
+
+		return formatDuration(value.get(ChronoUnit.MONTHS), value.get(ChronoUnit.DAYS), value.get(ChronoUnit.SECONDS),
+			(int) value.get(ChronoUnit.NANOS), buffer, position);
+	}
+
+	/**
+	 * Follows {@code DurationValue#prettyPrint()}, including its handling of negative seconds with a fraction.
+	 */
+	static int formatDuration(long months, long days, long seconds, int nanos, char[] buffer, int position) {
+
+		var start = position;
+		buffer[position++] = 'P';
+		position = formatComponent(months / 12, 'Y', buffer, position);
+		position = formatComponent(months % 12, 'M', buffer, position);
+		position = formatComponent(days, 'D', buffer, position);
+
+		if (seconds != 0 || nanos != 0) {
+			var negative = seconds < 0;
+			if (negative && nanos != 0) {
+				seconds += 1;
+				nanos -= NANOS_PER_SECOND;
+			}
+			buffer[position++] = 'T';
+			position = formatComponent(seconds / 3600, 'H', buffer, position);
+			seconds %= 3600;
+			position = formatComponent(seconds / 60, 'M', buffer, position);
+			seconds %= 60;
+			if (seconds != 0) {
+				if (negative && seconds >= 0 && nanos != 0) {
+					buffer[position++] = '-';
+				}
+				position = JoltNumberCodec.formatLong(seconds, buffer, position);
+				if (nanos != 0) {
+					position = formatFraction(Math.abs(nanos), buffer, position);
+				}
+				buffer[position++] = 'S';
+			} else if (nanos != 0) {
+				if (negative) {
+					buffer[position++] = '-';
+				}
+				buffer[position++] = '0';
+				position = formatFraction(Math.abs(nanos), buffer, position);
+				buffer[position++] = 'S';
+			}
+		}
+
+		if (position - start == 1) {
+			buffer[position++] = 'T';
+			buffer[position++] = '0';
+			buffer[position++] = 'S';
+		}
+		return position;
+	}
+
+	private static int formatComponent(long value, char unit, char[] buffer, int position) {
+
+		if (value != 0) {
+			position = JoltNumberCodec.formatLong(value, buffer, position);
+			buffer[position++] = unit;
+		}
+		return position;
+	}
+
+	private static int formatOffset(ZoneOffset offset, char[] buffer, int position) {
+
+		// The id is cached and has the same format as ISO offsets
+		return formatString(offset.getId(), buffer, position);
+	}
+
+	private static int formatString(String value, char[] buffer, int position) {
+
+		var length = value.length();
+		value.getChars(0, length, buffer, position);
+		return position + length;
+	}
+
+	/**
+	 * Writes {@code .} and the nanoseconds without trailing zeros.
+	 */
+	private static int formatFraction(int nanos, char[] buffer, int position) {
+
+		buffer[position++] = '.';
+		var end = formatPadded(nanos, 9, buffer, position);
+		while (buffer[end - 1] == '0') {
+			--end;
+		}
+		return end;
+	}
+
+	private static int formatPadded(int value, int width, char[] buffer, int position) {
+
+		var end = position + Math.max(width, JoltNumberCodec.numberOfDigits(value));
+		for (int i = end - 1; i >= position; --i) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+
+	private JoltTemporalFormatter() {
+	}
+}
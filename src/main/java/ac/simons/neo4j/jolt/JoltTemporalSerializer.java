@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.util.function.ToIntFunction;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Writes temporals and durations as strings, formatted by {@link JoltTemporalFormatter} into a per-thread buffer that
+ * is handed to the generator directly.
+ *
+ * @param <T> The type of value being written
+ */
+final class JoltTemporalSerializer<T> extends StdScalarSerializer<T> {
+
+	@FunctionalInterface
+	interface Formatter<T> {
+
+		int format(T value, char[] buffer, int position);
+	}
+
+	private static final ThreadLocal<char[]> BUFFER =
+		ThreadLocal.withInitial(() -> new char[2 * JoltTemporalFormatter.MAX_LENGTH]);
+
+	private final Formatter<T> formatter;
+
+	private final ToIntFunction<T> maxLength;
+
+	JoltTemporalSerializer(Class<T> type, Formatter<T> formatter) {
+		this(type, formatter, value -> JoltTemporalFormatter.MAX_LENGTH);
+	}
+
+	/**
+	 * @param maxLength Computes the maximum length of a formatted value, for values that contain strings
+	 */
+	JoltTemporalSerializer(Class<T> type, Formatter<T> formatter, ToIntFunction<T> maxLength) {
+		super(type);
+		this.formatter = formatter;
+		this.maxLength = maxLength;
+	}
+
+	@Override
+	public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+		var buffer = BUFFER.get();
+		var requiredLength = maxLength.applyAsInt(value);
+		if (buffer.length < requiredLength) {
+			buffer = new char[requiredLength];
+			BUFFER.set(buffer);
+		}
+		var length = formatter.format(value, buffer, 0);
+		generator.writeString(buffer, 0, length);
+	}
+}
@@ -1,20 +1,22 @@
 package ac.simons.neo4j.jolt;
 
-import java.io.IOException;
-import java.time.temporal.Temporal;
-
-import org.neo4j.values.storable.DurationValue;
+import java.util.Arrays;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DatabindContext;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 
 class JoltTypeIdResolver extends TypeIdResolverBase {
 
+	/**
+	 * The default Java type for each sigil, indexed by ordinal.
+	 */
+	private static final JavaType[] JAVA_TYPES = Arrays.stream(Sigil.values())
+		.map(sigil -> TypeFactory.defaultInstance().constructType(sigil.getTypes()[0]))
+		.toArray(JavaType[]::new);
+
 	@Override
 	public String idFromValue(Object value) {
 
@@ -48,25 +50,15 @@ class JoltTypeIdResolver extends TypeIdResolverBase {
 	}
 
 	@Override
-	public JavaType typeFromId(DatabindContext context, String id) throws IOException {
-
-		var sigil = Sigil.ofLiteral(id);
-		if (sigil == Sigil.REAL) {
-			return TypeFactory.defaultInstance().constructType(Number.class);
-		}
-		if (sigil == Sigil.TIME && context instanceof DeserializationContext) {
-			var deserializationContext = (DeserializationContext) context;
-
-			if (false && deserializationContext.getParser().nextToken() == JsonToken.VALUE_STRING) {
-
-				var text = deserializationContext.getParser().getText();
-				if (text.matches("[-+]?P")) {
-					return TypeFactory.defaultInstance().constructType(DurationValue.class);
-				}
-			}
-			return TypeFactory.defaultInstance().constructType(Temporal.class);
-		}
+	public JavaType typeFromId(DatabindContext context, String id) {
+		return javaTypeOf(Sigil.ofLiteral(id));
+	}
 
-		return TypeFactory.defaultInstance().constructType(sigil.getTypes()[0]);
+	/**
+	 * @param sigil The sigil to resolve
+	 * @return The Java type values with the given sigil are decoded into by default
+	 */
+	static JavaType javaTypeOf(Sigil sigil) {
+		return JAVA_TYPES[sigil.ordinal()];
 	}
 }
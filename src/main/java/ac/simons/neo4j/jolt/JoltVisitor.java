@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+
+/**
+ * Receives the values of Jolt input as a stream of events from a {@link JoltPushParser}, without any objects being
+ * created for them. All methods do nothing by default, so implementations only need to override the events they are
+ * interested in.
+ * <p>
+ * Char arrays passed to the text events are the parser's internal buffers: They are only valid for the duration of
+ * the call and must not be modified.
+ */
+public interface JoltVisitor {
+
+	/**
+	 * Called for {@code null} values.
+	 *
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onNull() throws IOException {
+	}
+
+	/**
+	 * @param value A boolean value
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onBoolean(boolean value) throws IOException {
+	}
+
+	/**
+	 * Called for integers and for reals without a fraction or exponent that fit into a long, the same values that
+	 * {@link JoltCodec} decodes into {@link Integer} or {@link Long}.
+	 *
+	 * @param value An integral value
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onInteger(long value) throws IOException {
+	}
+
+	/**
+	 * @param value A floating point value
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onReal(double value) throws IOException {
+	}
+
+	/**
+	 * @param text   Buffer containing the string
+	 * @param offset Offset of the string in the buffer
+	 * @param length Length of the string
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onString(char[] text, int offset, int length) throws IOException {
+	}
+
+	/**
+	 * @param value The decoded binary value, owned by the visitor
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onBinary(byte[] value) throws IOException {
+	}
+
+	/**
+	 * Called for temporals and durations with their ISO representation.
+	 *
+	 * @param text   Buffer containing the temporal
+	 * @param offset Offset of the temporal in the buffer
+	 * @param length Length of the temporal
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onTemporal(char[] text, int offset, int length) throws IOException {
+	}
+
+	/**
+	 * Called for points with their well-known text representation.
+	 *
+	 * @param text   Buffer containing the point
+	 * @param offset Offset of the point in the buffer
+	 * @param length Length of the point
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onSpatial(char[] text, int offset, int length) throws IOException {
+	}
+
+	/**
+	 * Called before the elements of a list. Every element is reported as a value, followed by {@link #onListEnd()}.
+	 *
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onListStart() throws IOException {
+	}
+
+	/**
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onListEnd() throws IOException {
+	}
+
+	/**
+	 * Called before the entries of a map. Every entry is reported as {@link #onMapKey(String)} followed by its value,
+	 * the end of the map by {@link #onMapEnd()}.
+	 *
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onMapStart() throws IOException {
+	}
+
+	/**
+	 * @param key The key of the next map entry
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onMapKey(String key) throws IOException {
+	}
+
+	/**
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onMapEnd() throws IOException {
+	}
+
+	/**
+	 * Called at the start of a node. The node's labels are reported through {@link #onLabel(String)}, its properties
+	 * through {@link #onProperty(String)} followed by their values, and its end by {@link #onNodeEnd()}.
+	 *
+	 * @param id The id of the node
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onNodeStart(long id) throws IOException {
+	}
+
+	/**
+	 * @param label A label of the current node
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onLabel(String label) throws IOException {
+	}
+
+	/**
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onNodeEnd() throws IOException {
+	}
+
+	/**
+	 * Called at the start of a relationship, followed by its properties and {@link #onRelationshipEnd()}. Start and
+	 * end node are always reported in the direction of the relationship, also for relationships that are traversed
+	 * backwards in a path.
+	 *
+	 * @param id          The id of the relationship
+	 * @param startNodeId The id of its start node
+	 * @param type        Its type
+	 * @param endNodeId   The id of its end node
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onRelationshipStart(long id, long startNodeId, String type, long endNodeId) throws IOException {
+	}
+
+	/**
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onRelationshipEnd() throws IOException {
+	}
+
+	/**
+	 * @param key The key of the next property of the current node or relationship
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onProperty(String key) throws IOException {
+	}
+
+	/**
+	 * Called at the start of a path. The nodes and relationships of the path are reported in order, followed by
+	 * {@link #onPathEnd()}.
+	 *
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onPathStart() throws IOException {
+	}
+
+	/**
+	 * @throws IOException if the visitor fails to process the event
+	 */
+	default void onPathEnd() throws IOException {
+	}
+}
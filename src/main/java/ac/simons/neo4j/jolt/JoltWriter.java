@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.spatial.Point;
+import org.neo4j.values.storable.DurationValue;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes Java values as Jolt directly to a {@link JsonGenerator}, without databind. The writer resolves the kind of
+ * each value once per class and writes sigil and value in a single switch, instead of looking up serializers and
+ * type serializers for every value like {@link JoltCodec} does.
+ * <p>
+ * The output is the same as the output of a {@link JoltCodec} with the same settings for all types the codec
+ * supports, with two differences: Arrays inside lists and maps are written as plain arrays instead of failing, and
+ * keys are never written through a {@link JoltKeyDictionary}. Types without a sigil are rejected with an
+ * {@link IllegalArgumentException}.
+ * <p>
+ * Writers don't keep any state between values and can be used for any number of values, but not from several threads.
+ */
+public final class JoltWriter {
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private static final PointToWKT POINT_TO_WKT = new PointToWKT();
+
+	private enum Kind {
+		INTEGER,
+		LONG,
+		SHORT_OR_BYTE,
+		FLOAT,
+		DOUBLE,
+		OTHER_NUMBER,
+		STRING,
+		READER,
+		LABEL,
+		RELATIONSHIP_TYPE,
+		BOOLEAN,
+		BINARY,
+		LOCAL_DATE,
+		LOCAL_TIME,
+		OFFSET_TIME,
+		LOCAL_DATE_TIME,
+		ZONED_DATE_TIME,
+		DURATION,
+		POINT,
+		LIST,
+		MAP,
+		NODE,
+		RELATIONSHIP,
+		RELATIONSHIP_REVERSED,
+		PATH,
+		LONG_ARRAY,
+		INT_ARRAY,
+		SHORT_ARRAY,
+		DOUBLE_ARRAY,
+		FLOAT_ARRAY,
+		BOOLEAN_ARRAY,
+		CHAR_ARRAY,
+		STRING_ARRAY,
+		OBJECT_ARRAY,
+		UNSUPPORTED
+	}
+
+	private static final ClassValue<Kind> KINDS = new ClassValue<>() {
+		@Override
+		protected Kind computeValue(Class<?> type) {
+			return kindOf(type);
+		}
+	};
+
+	private final JsonGenerator generator;
+
+	private final boolean strictModeEnabled;
+
+	private final JoltCodec.BinaryEncoding binaryEncoding;
+
+	/**
+	 * Buffer numbers, temporals and durations are formatted into.
+	 */
+	private char[] buffer = new char[JoltTemporalFormatter.MAX_LENGTH];
+
+	/**
+	 * Creates a new writer using hex encoding for binary values.
+	 *
+	 * @param generator         The generator to write to
+	 * @param strictModeEnabled {@code true} to write all values with their sigil
+	 */
+	public JoltWriter(JsonGenerator generator, boolean strictModeEnabled) {
+		this(generator, strictModeEnabled, JoltCodec.BinaryEncoding.HEX);
+	}
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param generator         The generator to write to
+	 * @param strictModeEnabled {@code true} to write all values with their sigil
+	 * @param binaryEncoding    The encoding for binary values
+	 */
+	public JoltWriter(JsonGenerator generator, boolean strictModeEnabled, JoltCodec.BinaryEncoding binaryEncoding) {
+		this.generator = generator;
+		this.strictModeEnabled = strictModeEnabled;
+		this.binaryEncoding = binaryEncoding;
+	}
+
+	/**
+	 * Writes a single value, including all nested values.
+	 *
+	 * @param value The value to write, may be {@literal null}
+	 * @throws IOException              if the value cannot be written
+	 * @throws IllegalArgumentException if the value or a nested value is of a type Jolt doesn't support
+	 */
+	public void writeValue(Object value) throws IOException {
+
+		if (value == null) {
+			generator.writeNull();
+			return;
+		}
+
+		switch (KINDS.get(value.getClass())) {
+			case INTEGER:
+				writeInteger((Integer) value);
+				break;
+			case LONG:
+				writeLong((Long) value);
+				break;
+			case SHORT_OR_BYTE:
+				startTyped(Sigil.REAL);
+				generator.writeNumber(((Number) value).shortValue());
+				endTyped();
+				break;
+			case FLOAT:
+				startTyped(Sigil.REAL);
+				generator.writeNumber((Float) value);
+				endTyped();
+				break;
+			case DOUBLE:
+				writeTyped(Sigil.REAL, JoltNumberCodec.formatDouble((Double) value, buffer, 0));
+				break;
+			case OTHER_NUMBER:
+				startTyped(Sigil.REAL);
+				generator.writeNumber(value.toString());
+				endTyped();
+				break;
+			case STRING:
+				writeString((String) value);
+				break;
+			case READER:
+				writeReader((Reader) value);
+				break;
+			case LABEL:
+				writeString(((Label) value).name());
+				break;
+			case RELATIONSHIP_TYPE:
+				writeString(((RelationshipType) value).name());
+				break;
+			case BOOLEAN:
+				writeBoolean((Boolean) value);
+				break;
+			case BINARY:
+				writeBinary((byte[]) value);
+				break;
+			case LOCAL_DATE:
+				writeTyped(Sigil.TIME, JoltTemporalFormatter.formatLocalDate((LocalDate) value, buffer, 0));
+				break;
+			case LOCAL_TIME:
+				writeTyped(Sigil.TIME, JoltTemporalFormatter.formatLocalTime((LocalTime) value, buffer, 0));
+				break;
+			case OFFSET_TIME:
+				writeTyped(Sigil.TIME, JoltTemporalFormatter.formatOffsetTime((OffsetTime) value, buffer, 0));
+				break;
+			case LOCAL_DATE_TIME:
+				writeTyped(Sigil.TIME, JoltTemporalFormatter.formatLocalDateTime((LocalDateTime) value, buffer, 0));
+				break;
+			case ZONED_DATE_TIME:
+				writeZonedDateTime((ZonedDateTime) value);
+				break;
+			case DURATION:
+				writeTyped(Sigil.TIME, JoltTemporalFormatter.formatDuration((DurationValue) value, buffer, 0));
+				break;
+			case POINT:
+				startTyped(Sigil.SPATIAL);
+				generator.writeString(POINT_TO_WKT.apply((Point) value));
+				endTyped();
+				break;
+			case LIST:
+				writeList((List<?>) value);
+				break;
+			case MAP:
+				writeMap((Map<?, ?>) value);
+				break;
+			case NODE:
+				writeNode((Node) value);
+				break;
+			case RELATIONSHIP:
+				var relationship = (Relationship) value;
+				writeRelationship(Sigil.RELATIONSHIP, relationship.getId(), relationship.getStartNodeId(),
+					relationship.getType(), relationship.getEndNodeId(), relationship.getAllProperties());
+				break;
+			case RELATIONSHIP_REVERSED:
+				var reversed = (JoltRelationship) value;
+				writeRelationship(Sigil.RELATIONSHIP_REVERSED, reversed.getId(), reversed.getStartNodeId(),
+					reversed.getType(), reversed.getEndNodeId(), reversed.getAllProperties());
+				break;
+			case PATH:
+				writePath((Path) value);
+				break;
+			case LONG_ARRAY:
+				var longs = (long[]) value;
+				generator.writeArray(longs, 0, longs.length);
+				break;
+			case INT_ARRAY:
+				var ints = (int[]) value;
+				generator.writeArray(ints, 0, ints.length);
+				break;
+			case SHORT_ARRAY:
+				generator.writeStartArray();
+				for (short element : (short[]) value) {
+					generator.writeNumber(element);
+				}
+				generator.writeEndArray();
+				break;
+			case DOUBLE_ARRAY:
+				var doubles = (double[]) value;
+				generator.writeArray(doubles, 0, doubles.length);
+				break;
+			case FLOAT_ARRAY:
+				generator.writeStartArray();
+				for (float element : (float[]) value) {
+					generator.writeNumber(element);
+				}
+				generator.writeEndArray();
+				break;
+			case BOOLEAN_ARRAY:
+				generator.writeStartArray();
+				for (boolean element : (boolean[]) value) {
+					generator.writeBoolean(element);
+				}
+				generator.writeEndArray();
+				break;
+			case CHAR_ARRAY:
+				var chars = (char[]) value;
+				generator.writeString(chars, 0, chars.length);
+				break;
+			case STRING_ARRAY:
+				generator.writeStartArray();
+				for (String element : (String[]) value) {
+					generator.writeString(element);
+				}
+				generator.writeEndArray();
+				break;
+			case OBJECT_ARRAY:
+				generator.writeStartArray();
+				for (Object element : (Object[]) value) {
+					writeValue(element);
+				}
+				generator.writeEndArray();
+				break;
+			default:
+				throw new IllegalArgumentException(value.getClass() + " is not a supported type");
+		}
+	}
+
+	private void writeInteger(int value) throws IOException {
+
+		if (strictModeEnabled) {
+			writeTyped(Sigil.INTEGER, JoltNumberCodec.formatLong(value, buffer, 0));
+		} else {
+			generator.writeNumber(value);
+		}
+	}
+
+	private void writeLong(long value) throws IOException {
+
+		if (strictModeEnabled) {
+			// Same range as JoltTypeIdResolver uses for longs
+			var sigil = value >= Integer.MIN_VALUE && value < Integer.MAX_VALUE ? Sigil.INTEGER : Sigil.REAL;
+			writeTyped(sigil, JoltNumberCodec.formatLong(value, buffer, 0));
+		} else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			generator.writeNumber(value);
+		} else {
+			writeTyped(Sigil.REAL, JoltNumberCodec.formatLong(value, buffer, 0));
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+
+		if (strictModeEnabled) {
+			startTyped(Sigil.UNICODE);
+			generator.writeString(value);
+			endTyped();
+		} else {
+			generator.writeString(value);
+		}
+	}
+
+	private void writeReader(Reader value) throws IOException {
+
+		if (strictModeEnabled) {
+			startTyped(Sigil.UNICODE);
+			generator.writeString(value, -1);
+			endTyped();
+		} else {
+			generator.writeString(value, -1);
+		}
+	}
+
+	private void writeBoolean(boolean value) throws IOException {
+
+		if (strictModeEnabled) {
+			startTyped(Sigil.BOOLEAN);
+			generator.writeString(value ? "true" : "false");
+			endTyped();
+		} else {
+			generator.writeBoolean(value);
+		}
+	}
+
+	private void writeBinary(byte[] value) throws IOException {
+
+		if (binaryEncoding == JoltCodec.BinaryEncoding.BASE64) {
+			startTyped(Sigil.BINARY_BASE64);
+			generator.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, value, 0, value.length);
+		} else {
+			startTyped(Sigil.BINARY);
+			var hex = new char[2 * value.length];
+			for (int i = 0; i < value.length; ++i) {
+				hex[2 * i] = HEX_DIGITS[(value[i] >> 4) & 0xf];
+				hex[2 * i + 1] = HEX_DIGITS[value[i] & 0xf];
+			}
+			generator.writeString(hex, 0, hex.length);
+		}
+		endTyped();
+	}
+
+	private void writeZonedDateTime(ZonedDateTime value) throws IOException {
+
+		var requiredLength = JoltTemporalFormatter.MAX_LENGTH + value.getZone().getId().length();
+		if (buffer.length < requiredLength) {
+			buffer = new char[requiredLength];
+		}
+		writeTyped(Sigil.TIME, JoltTemporalFormatter.formatZonedDateTime(value, buffer, 0));
+	}
+
+	private void writeList(List<?> list) throws IOException {
+
+		startTyped(Sigil.LIST);
+		generator.writeStartArray();
+		for (Object element : list) {
+			writeValue(element);
+		}
+		generator.writeEndArray();
+		endTyped();
+	}
+
+	private void writeMap(Map<?, ?> map) throws IOException {
+
+		startTyped(Sigil.MAP);
+		writeEntries(map);
+		endTyped();
+	}
+
+	private void writeNode(Node node) throws IOException {
+
+		startTyped(Sigil.NODE);
+		generator.writeStartArray();
+		generator.writeNumber(node.getId());
+		generator.writeStartArray();
+		for (Label label : node.getLabels()) {
+			generator.writeString(label.name());
+		}
+		generator.writeEndArray();
+		writeEntries(node.getAllProperties());
+		generator.writeEndArray();
+		endTyped();
+	}
+
+	private void writeRelationship(Sigil sigil, long id, long startNodeId, RelationshipType type, long endNodeId,
+		Map<String, Object> properties) throws IOException {
+
+		startTyped(sigil);
+		generator.writeStartArray();
+		generator.writeNumber(id);
+		generator.writeNumber(startNodeId);
+		generator.writeString(type.name());
+		generator.writeNumber(endNodeId);
+		writeEntries(properties);
+		generator.writeEndArray();
+		endTyped();
+	}
+
+	private void writePath(Path path) throws IOException {
+
+		startTyped(Sigil.PATH);
+		generator.writeStartArray();
+		var lastNodeId = 0L;
+		for (var entity : path) {
+			if (entity instanceof Node) {
+				lastNodeId = entity.getId();
+				writeNode((Node) entity);
+			} else if (entity instanceof Relationship) {
+				var relationship = (Relationship) entity;
+				// Relationships traversed backwards are reversed, so that the path flows correctly
+				if (relationship.getStartNodeId() != lastNodeId) {
+					writeRelationship(Sigil.RELATIONSHIP_REVERSED, relationship.getId(), relationship.getEndNodeId(),
+						relationship.getType(), relationship.getStartNodeId(), relationship.getAllProperties());
+				} else {
+					writeRelationship(Sigil.RELATIONSHIP, relationship.getId(), relationship.getStartNodeId(),
+						relationship.getType(), relationship.getEndNodeId(), relationship.getAllProperties());
+				}
+			}
+		}
+		generator.writeEndArray();
+		endTyped();
+	}
+
+	private void writeEntries(Map<?, ?> entries) throws IOException {
+
+		generator.writeStartObject();
+		for (var entry : (entries == null ? Collections.<Object, Object>emptyMap() : entries).entrySet()) {
+			generator.writeFieldName(String.valueOf(entry.getKey()));
+			writeValue(entry.getValue());
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeTyped(Sigil sigil, int length) throws IOException {
+
+		startTyped(sigil);
+		generator.writeString(buffer, 0, length);
+		endTyped();
+	}
+
+	private void startTyped(Sigil sigil) throws IOException {
+		generator.writeStartObject();
+		generator.writeFieldName(sigil.getValue());
+	}
+
+	private void endTyped() throws IOException {
+		generator.writeEndObject();
+	}
+
+	private static Kind kindOf(Class<?> type) {
+
+		if (type == Integer.class) {
+			return Kind.INTEGER;
+		} else if (type == Long.class) {
+			return Kind.LONG;
+		} else if (type == Double.class) {
+			return Kind.DOUBLE;
+		} else if (type == String.class) {
+			return Kind.STRING;
+		} else if (type == Boolean.class) {
+			return Kind.BOOLEAN;
+		} else if (type == Short.class || type == Byte.class) {
+			return Kind.SHORT_OR_BYTE;
+		} else if (type == Float.class) {
+			return Kind.FLOAT;
+		} else if (type == byte[].class) {
+			return Kind.BINARY;
+		} else if (type == LocalDate.class) {
+			return Kind.LOCAL_DATE;
+		} else if (type == LocalTime.class) {
+			return Kind.LOCAL_TIME;
+		} else if (type == OffsetTime.class) {
+			return Kind.OFFSET_TIME;
+		} else if (type == LocalDateTime.class) {
+			return Kind.LOCAL_DATE_TIME;
+		} else if (type == ZonedDateTime.class) {
+			return Kind.ZONED_DATE_TIME;
+		} else if (type == JoltRelationship.class) {
+			return Kind.RELATIONSHIP_REVERSED;
+		} else if (type == long[].class) {
+			return Kind.LONG_ARRAY;
+		} else if (type == int[].class) {
+			return Kind.INT_ARRAY;
+		} else if (type == short[].class) {
+			return Kind.SHORT_ARRAY;
+		} else if (type == double[].class) {
+			return Kind.DOUBLE_ARRAY;
+		} else if (type == float[].class) {
+			return Kind.FLOAT_ARRAY;
+		} else if (type == boolean[].class) {
+			return Kind.BOOLEAN_ARRAY;
+		} else if (type == char[].class) {
+			return Kind.CHAR_ARRAY;
+		} else if (type == String[].class) {
+			return Kind.STRING_ARRAY;
+		} else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+			return Kind.OBJECT_ARRAY;
+		} else if (DurationValue.class.isAssignableFrom(type)) {
+			return Kind.DURATION;
+		} else if (Number.class.isAssignableFrom(type)) {
+			return Kind.OTHER_NUMBER;
+		} else if (Reader.class.isAssignableFrom(type)) {
+			return Kind.READER;
+		} else if (List.class.isAssignableFrom(type)) {
+			return Kind.LIST;
+		} else if (Map.class.isAssignableFrom(type)) {
+			return Kind.MAP;
+		} else if (Point.class.isAssignableFrom(type)) {
+			return Kind.POINT;
+		} else if (Node.class.isAssignableFrom(type)) {
+			return Kind.NODE;
+		} else if (Relationship.class.isAssignableFrom(type)) {
+			return Kind.RELATIONSHIP;
+		} else if (Path.class.isAssignableFrom(type)) {
+			return Kind.PATH;
+		} else if (Label.class.isAssignableFrom(type)) {
+			return Kind.LABEL;
+		} else if (RelationshipType.class.isAssignableFrom(type)) {
+			return Kind.RELATIONSHIP_TYPE;
+		}
+		return Kind.UNSUPPORTED;
+	}
+}
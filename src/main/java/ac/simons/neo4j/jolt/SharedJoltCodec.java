@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Process wide, pre-warmed Jolt codecs. The codecs themselves are not exposed, only immutable {@link ObjectWriter}s and
+ * {@link ObjectReader}s created from them, so that their configuration cannot be changed by any user. Both codecs are
+ * created and {@link JoltCodec#warmUp() warmed up} when this enum is first accessed, which should happen during
+ * startup, not on the first request.
+ */
+public enum SharedJoltCodec {
+
+	/**
+	 * Codec with strict mode disabled.
+	 */
+	DEFAULT(false),
+
+	/**
+	 * Codec with strict mode enabled.
+	 */
+	STRICT(true);
+
+	private final JoltCodec codec;
+
+	private final ObjectWriter writer;
+
+	private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+	SharedJoltCodec(boolean strictModeEnabled) {
+
+		this.codec = new JoltCodec(strictModeEnabled).warmUp();
+		this.writer = codec.writer();
+		this.readers.put(Object.class, codec.readerFor(Object.class));
+		for (Sigil sigil : Sigil.values()) {
+			for (Class<?> type : sigil.getTypes()) {
+				this.readers.put(type, codec.readerFor(type));
+			}
+		}
+	}
+
+	/**
+	 * @param strictModeEnabled {@code true} for the strict codec, {@code false} for the default one
+	 * @return The shared codec for the given mode
+	 */
+	public static SharedJoltCodec of(boolean strictModeEnabled) {
+		return strictModeEnabled ? STRICT : DEFAULT;
+	}
+
+	/**
+	 * @return A writer for arbitrary values
+	 */
+	public ObjectWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @return A reader that decodes values into the type indicated by their sigils
+	 */
+	public ObjectReader getReader() {
+		return getReader(Object.class);
+	}
+
+	/**
+	 * Returns a reader for the given type. Readers for all types covered by a sigil are created upfront, readers for
+	 * other types are created once and cached.
+	 *
+	 * @param valueType The type to decode into
+	 * @return A reader for the given type
+	 */
+	public ObjectReader getReader(Class<?> valueType) {
+		return readers.computeIfAbsent(valueType, codec::readerFor);
+	}
+}
@@ -19,6 +19,7 @@
  */
 package ac.simons.neo4j.jolt;
 
+import java.io.Reader;
 import java.time.temporal.Temporal;
 import java.time.temporal.TemporalAmount;
 import java.util.Arrays;
@@ -37,8 +38,9 @@ enum Sigil {
 
 	INTEGER("Z", Integer.class),
 	REAL("R", Number.class, Long.class, Double.class),
-	UNICODE("U", String.class),
+	UNICODE("U", String.class, Reader.class),
 	BINARY("#", byte[].class),
+	BINARY_BASE64("#64", byte[].class),
 	LIST("[]", List.class),
 	MAP("{}", Map.class),
 	TIME("T", Temporal.class),
@@ -54,6 +56,25 @@ enum Sigil {
 	private final static Map<String, Sigil> REVERSE_LOOKUP = Arrays.stream(Sigil.values())
 		.collect(Collectors.toUnmodifiableMap(Sigil::getValue, Function.identity()));
 
+	/**
+	 * Sigils by Java type. This is consulted for every value written and must not block concurrent writers, hence a
+	 * {@link ClassValue} that computes the sigil once per class and is read without locking afterwards.
+	 */
+	private static final ClassValue<Sigil> SIGILS_BY_TYPE = new ClassValue<>() {
+		@Override
+		protected Sigil computeValue(Class<?> type) {
+			for (Sigil sigil : Sigil.values()) {
+				for (Class<?> supportedType : sigil.types) {
+					if (supportedType.isAssignableFrom(type)) {
+						return sigil;
+					}
+				}
+			}
+
+			throw new IllegalArgumentException(type + " is not a supported type");
+		}
+	};
+
 	private final String value;
 
 	private final Sigil aliasFor;
@@ -84,11 +105,52 @@ enum Sigil {
 		return types;
 	}
 
+	/**
+	 * @param type The type to check
+	 * @return {@code true} if values with this sigil can be decoded into exactly the given type
+	 */
+	boolean isDecodableAs(Class<?> type) {
+		for (Class<?> supportedType : types) {
+			if (supportedType == type) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	static Sigil ofLiteral(String value) {
-		if (!REVERSE_LOOKUP.containsKey(value)) {
-			throw new IllegalArgumentException(String.format("No Sigil with value '%s'.", value));
+
+		// Resolve the common sigils without touching the lookup table, this is called for every decoded value
+		switch (value) {
+			case "Z":
+				return INTEGER;
+			case "R":
+				return REAL;
+			case "U":
+				return UNICODE;
+			case "?":
+				return BOOLEAN;
+			case "T":
+				return TIME;
+			case "[]":
+				return LIST;
+			case "{}":
+				return MAP;
+			default:
+				Sigil sigil = REVERSE_LOOKUP.get(value);
+				if (sigil == null) {
+					throw new IllegalArgumentException(String.format("No Sigil with value '%s'.", value));
+				}
+				return sigil;
 		}
-		return REVERSE_LOOKUP.get(value);
+	}
+
+	/**
+	 * @param value A key that might be a sigil
+	 * @return {@code true} if the key is the literal of a sigil
+	 */
+	static boolean isLiteral(String value) {
+		return REVERSE_LOOKUP.containsKey(value);
 	}
 
 	static Sigil forType(Class<?> type) {
@@ -97,14 +159,6 @@ enum Sigil {
 			return Sigil.NULL;
 		}
 
-		for (Sigil sigil : Sigil.values()) {
-			for (Class<?> supportedType : sigil.types) {
-				if (supportedType.isAssignableFrom(type)) {
-					return sigil;
-				}
-			}
-		}
-
-		throw new IllegalArgumentException(type + " is not a supported type");
+		return SIGILS_BY_TYPE.get(type);
 	}
 }
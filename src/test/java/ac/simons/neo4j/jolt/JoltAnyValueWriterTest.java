@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.neo4j.values.AnyValue;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.DateTimeValue;
+import org.neo4j.values.storable.DateValue;
+import org.neo4j.values.storable.DurationValue;
+import org.neo4j.values.storable.Value;
+import org.neo4j.values.storable.Values;
+import org.neo4j.values.virtual.NodeValue;
+import org.neo4j.values.virtual.RelationshipValue;
+import org.neo4j.values.virtual.VirtualValues;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JoltAnyValueWriterTest {
+
+	private static String write(AnyValue value, boolean strictModeEnabled) throws IOException {
+
+		var result = new StringWriter();
+		try (var generator = new JoltCodec(strictModeEnabled).getFactory().createGenerator(result)) {
+			new JoltAnyValueWriter(generator, strictModeEnabled).write(value);
+		}
+		return result.toString();
+	}
+
+	Stream<Arguments> storableValues() {
+		return Stream.of(
+			Values.longValue(42L),
+			Values.longValue(2147483648L),
+			Values.intValue(23),
+			Values.shortValue((short) 4),
+			Values.floatValue(1.1f),
+			Values.doubleValue(42.23),
+			Values.stringValue("Hallo!"),
+			Values.booleanValue(true),
+			Values.longArray(new long[] { 1L, 2147483648L }),
+			Values.stringArray("a", "b"),
+			Values.charArray(new char[] { 'a', 'b' }),
+			Values.byteArray(new byte[] { 0, 1, (byte) 0xff }),
+			Values.dateArray(new LocalDate[] { LocalDate.of(2020, 12, 14) }),
+			Values.pointValue(CoordinateReferenceSystem.Cartesian_3D, 1.0, 2.0, 3.5),
+			DateValue.date(2020, 12, 14),
+			DateTimeValue.datetime(2020, 12, 14, 17, 14, 0, 0, ZoneId.of("Europe/Berlin")),
+			DurationValue.parse("P1Y2M3DT4H5M6.7S")
+		).flatMap(value -> Stream.of(Arguments.of(value, true), Arguments.of(value, false)));
+	}
+
+	@ParameterizedTest
+	@MethodSource("storableValues")
+	void shouldWriteLikeTheCodec(Value value, boolean strictModeEnabled) throws IOException {
+
+		var expected = new JoltCodec(strictModeEnabled).writeValueAsString(value.asObjectCopy());
+		assertThat(write(value, strictModeEnabled)).isEqualTo(expected);
+	}
+
+	@Test
+	void shouldWriteListsAndMaps() throws IOException {
+
+		var value = VirtualValues.map(new String[] { "a", "b", "c" }, new AnyValue[] {
+			Values.stringValue("x"),
+			VirtualValues.list(Values.longValue(1L), Values.stringArray("y", "z")),
+			Values.stringValue("after")
+		});
+
+		assertThat(write(value, true)).isEqualTo(
+			"{\"{}\":{\"a\":{\"U\":\"x\"},\"b\":{\"[]\":[{\"Z\":\"1\"},[\"y\",\"z\"]]},\"c\":{\"U\":\"after\"}}}");
+		assertThat(write(value, false)).isEqualTo("{\"{}\":{\"a\":\"x\",\"b\":{\"[]\":[1,[\"y\",\"z\"]]},\"c\":\"after\"}}");
+	}
+
+	@Test
+	void shouldWriteNodesAndRelationships() throws IOException {
+
+		var properties = VirtualValues.map(new String[] { "name" }, new AnyValue[] { Values.stringValue("A") });
+		var node = VirtualValues.nodeValue(1L, Values.stringArray("L1", "L2"), properties);
+		var otherNode = VirtualValues.nodeValue(2L, Values.stringArray(), VirtualValues.EMPTY_MAP);
+		var relationship = VirtualValues.relationshipValue(3L, node, otherNode, Values.stringValue("KNOWS"), properties);
+
+		assertThat(write(node, true)).isEqualTo("{\"()\":[1,[\"L1\",\"L2\"],{\"name\":{\"U\":\"A\"}}]}");
+		assertThat(write(relationship, false)).isEqualTo("{\"->\":[3,1,\"KNOWS\",2,{\"name\":\"A\"}]}");
+	}
+
+	@Test
+	void shouldResolveReferences() throws IOException {
+
+		var properties = VirtualValues.map(new String[] { "name" }, new AnyValue[] { Values.stringValue("A") });
+		var node = VirtualValues.nodeValue(1L, Values.stringArray("L1"), properties);
+		var otherNode = VirtualValues.nodeValue(2L, Values.stringArray(), VirtualValues.EMPTY_MAP);
+		var relationship = VirtualValues.relationshipValue(3L, node, otherNode, Values.stringValue("KNOWS"), properties);
+		var resolver = new JoltAnyValueWriter.EntityResolver() {
+			@Override
+			public NodeValue node(long nodeId) {
+				return nodeId == 1L ? node : otherNode;
+			}
+
+			@Override
+			public RelationshipValue relationship(long relationshipId) {
+				return relationship;
+			}
+		};
+
+		var value = VirtualValues.list(VirtualValues.node(1L), VirtualValues.relationship(3L));
+		var result = new StringWriter();
+		try (var generator = new JoltCodec(false).getFactory().createGenerator(result)) {
+			new JoltAnyValueWriter(generator, false, JoltCodec.BinaryEncoding.HEX, resolver).write(value);
+		}
+		assertThat(result.toString()).isEqualTo(
+			"{\"[]\":[{\"()\":[1,[\"L1\"],{\"name\":\"A\"}]},{\"->\":[3,1,\"KNOWS\",2,{\"name\":\"A\"}]}]}");
+	}
+
+	@Test
+	void shouldRequireResolverForReferences() {
+
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+			.isThrownBy(() -> write(VirtualValues.node(1L), true));
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+			.isThrownBy(() -> write(VirtualValues.relationship(3L), true));
+	}
+
+	@Test
+	void shouldReverseRelationshipsInPaths() throws IOException {
+
+		var n1 = VirtualValues.nodeValue(1L, Values.stringArray(), VirtualValues.EMPTY_MAP);
+		var n2 = VirtualValues.nodeValue(2L, Values.stringArray(), VirtualValues.EMPTY_MAP);
+		var n3 = VirtualValues.nodeValue(3L, Values.stringArray(), VirtualValues.EMPTY_MAP);
+		var r1 = VirtualValues.relationshipValue(10L, n1, n2, Values.stringValue("KNOWS"), VirtualValues.EMPTY_MAP);
+		var r2 = VirtualValues.relationshipValue(11L, n3, n2, Values.stringValue("LIKES"), VirtualValues.EMPTY_MAP);
+
+		var path = VirtualValues.path(new NodeValue[] { n1, n2, n3 }, new RelationshipValue[] { r1, r2 });
+		assertThat(write(path, true)).isEqualTo("{\"..\":["
+			+ "{\"()\":[1,[],{}]},{\"->\":[10,1,\"KNOWS\",2,{}]},"
+			+ "{\"()\":[2,[],{}]},{\"<-\":[11,2,\"LIKES\",3,{}]},"
+			+ "{\"()\":[3,[],{}]}]}");
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.io.JsonEOFException;
+
+class JoltAsyncDecoderTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@Test
+	void shouldEmitRowsAsSoonAsTheyAreComplete() throws IOException {
+
+		var input = "{\"Z\":\"1\"} {\"[]\":[{\"U\":\"A\"},{\"R\":\"42.3\"}]}\n{\"{}\":{\"a\":{\"T\":\"2020-12-14\"}}}"
+			.getBytes(StandardCharsets.UTF_8);
+
+		var rows = new ArrayList<>();
+		var emittedAfterChunk = new ArrayList<Integer>();
+		try (var decoder = new JoltAsyncDecoder<>(objectMapper, Object.class, rows::add)) {
+			for (byte b : input) {
+				if (decoder.feed(new byte[] { b }) > 0) {
+					emittedAfterChunk.add(rows.size());
+				}
+			}
+			assertThat(decoder.endOfInput()).isZero();
+		}
+
+		assertThat(rows).containsExactly(1, List.of("A", 42.3), Map.of("a", LocalDate.of(2020, 12, 14)));
+		assertThat(emittedAfterChunk).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void shouldHandleSeveralRowsInOneChunk() throws IOException {
+
+		var rows = new ArrayList<String>();
+		try (var decoder = new JoltAsyncDecoder<>(objectMapper, String.class, rows::add)) {
+			var chunk = "{\"U\":\"A\"}{\"U\":\"B\"}{\"U\":".getBytes(StandardCharsets.UTF_8);
+			assertThat(decoder.feed(chunk)).isEqualTo(2);
+			assertThat(decoder.feed("\"C\"}".getBytes(StandardCharsets.UTF_8))).isEqualTo(1);
+		}
+
+		assertThat(rows).containsExactly("A", "B", "C");
+	}
+
+	@Test
+	void shouldFailOnIncompleteRow() throws IOException {
+
+		try (var decoder = new JoltAsyncDecoder<>(objectMapper, Object.class, row -> {
+		})) {
+			decoder.feed("{\"Z\":".getBytes(StandardCharsets.UTF_8));
+			assertThatExceptionOfType(JsonEOFException.class).isThrownBy(decoder::endOfInput);
+		}
+	}
+}
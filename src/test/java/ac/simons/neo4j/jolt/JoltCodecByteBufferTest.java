@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class JoltCodecByteBufferTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private static final List<Map<String, Object>> ROWS = IntStream.range(0, 2_000)
+		.mapToObj(i -> Map.<String, Object>of("id", i, "name", "Zeile " + i + " ä€"))
+		.collect(Collectors.toList());
+
+	private static byte[] concat(List<ByteBuffer> buffers) {
+
+		var result = new ByteArrayOutputStream();
+		for (ByteBuffer buffer : buffers) {
+			var chunk = new byte[buffer.remaining()];
+			buffer.get(chunk);
+			result.writeBytes(chunk);
+		}
+		return result.toByteArray();
+	}
+
+	@Test
+	void shouldWriteToChannel() throws IOException {
+
+		var out = new ByteArrayOutputStream();
+		objectMapper.writeValue(Channels.newChannel(out), ROWS);
+
+		assertThat(out.toByteArray()).isEqualTo(objectMapper.writeValueAsBytes(ROWS));
+	}
+
+	@Test
+	void shouldWriteToChannelsOnVirtualThreads() throws Exception {
+
+		var expected = objectMapper.writeValueAsBytes(ROWS);
+		var results = new ArrayList<Future<byte[]>>();
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 100; ++i) {
+				results.add(executor.submit(() -> {
+					var out = new ByteArrayOutputStream();
+					objectMapper.writeValue(Channels.newChannel(out), ROWS);
+					return out.toByteArray();
+				}));
+			}
+		}
+
+		for (Future<byte[]> result : results) {
+			assertThat(result.get()).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void shouldRejectNonBlockingChannels() throws IOException {
+
+		var pipe = Pipe.open();
+		try (var sink = pipe.sink()) {
+			sink.configureBlocking(false);
+
+			assertThatExceptionOfType(IllegalBlockingModeException.class)
+				.isThrownBy(() -> objectMapper.writeValue(sink, ROWS));
+		} finally {
+			pipe.source().close();
+		}
+	}
+
+	@Test
+	void shouldWriteIntoPooledDirectBuffers() throws IOException {
+
+		var buffers = objectMapper.writeValueAsByteBuffers(ROWS, () -> ByteBuffer.allocateDirect(1024));
+
+		assertThat(buffers.size()).isGreaterThan(1);
+		assertThat(buffers).allMatch(ByteBuffer::isDirect);
+		assertThat(concat(buffers)).isEqualTo(objectMapper.writeValueAsBytes(ROWS));
+	}
+
+	@Test
+	void shouldOnlyUseRemainingSpace() throws IOException {
+
+		var buffers = objectMapper.writeValueAsByteBuffers(Map.of("a", 1), () -> ByteBuffer.allocate(8).position(2).limit(5));
+
+		assertThat(buffers).allMatch(buffer -> buffer.position() == 2 && buffer.limit() <= 5);
+		assertThat(concat(buffers)).isEqualTo(objectMapper.writeValueAsBytes(Map.of("a", 1)));
+	}
+
+	@Test
+	void shouldRequireBuffersWithRemainingSpace() {
+
+		assertThatIOException()
+			.isThrownBy(() -> objectMapper.writeValueAsByteBuffers(ROWS, () -> ByteBuffer.allocate(0)));
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.Values;
+
+/**
+ * Measures the encoding throughput of a single codec shared by an increasing number of threads. Not part of the
+ * regular build, run with {@code ./mvnw test -Dtest=JoltCodecConcurrencyBenchmark}.
+ */
+class JoltCodecConcurrencyBenchmark {
+
+	private static final long WARM_UP_MILLIS = 1_000L;
+
+	private static final long MEASUREMENT_MILLIS = 3_000L;
+
+	@Test
+	void encodingThroughput() throws Exception {
+
+		var row = createRow();
+		var maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+
+		for (boolean strictModeEnabled : new boolean[] { true, false }) {
+			var codec = new JoltCodec(strictModeEnabled).warmUp();
+			double singleThreaded = 0.0;
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				var rowsPerSecond = measure(codec, row, threads);
+				if (threads == 1) {
+					singleThreaded = rowsPerSecond;
+				}
+				System.out.println(String.format("%s, %3d threads: %12.0f rows/s, speedup %5.2f",
+					strictModeEnabled ? "strict" : "sparse", threads, rowsPerSecond, rowsPerSecond / singleThreaded));
+			}
+		}
+	}
+
+	private static Object createRow() {
+
+		var relationship = mock(Relationship.class);
+		when(relationship.getId()).thenReturn(4711L);
+		when(relationship.getStartNodeId()).thenReturn(23L);
+		when(relationship.getEndNodeId()).thenReturn(42L);
+		when(relationship.getType()).thenReturn(RelationshipType.withName("KNOWS"));
+		when(relationship.getAllProperties()).thenReturn(Map.of("since", 2015, "weight", 0.5, "via", "work"));
+
+		// The detached copy doesn't go through the mock when being serialized
+		return List.of(
+			1, 2147483649L, 42.23, "a string", true, LocalDate.of(2020, 12, 14), ZonedDateTime.now(ZoneOffset.UTC),
+			Values.pointValue(CoordinateReferenceSystem.WGS84, 12.994823, 55.612191),
+			Map.of("aList", List.of("s1", "s2"), "aDate", LocalDate.of(2015, 7, 21)),
+			JoltRelationship.fromRelationshipReversed(relationship)
+		);
+	}
+
+	private static double measure(JoltCodec codec, Object row, int threads) throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			var measuring = new AtomicBoolean(false);
+			var stop = new AtomicBoolean(false);
+			var ready = new CountDownLatch(threads);
+			var results = new ArrayList<Future<Long>>();
+			for (int i = 0; i < threads; ++i) {
+				results.add(executor.submit(() -> {
+					var out = new ByteArrayOutputStream(4096);
+					long rows = 0L;
+					ready.countDown();
+					while (!stop.get()) {
+						out.reset();
+						try {
+							codec.writeValue(out, row);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+						if (measuring.get()) {
+							++rows;
+						}
+					}
+					return rows;
+				}));
+			}
+
+			ready.await();
+			Thread.sleep(WARM_UP_MILLIS);
+			measuring.set(true);
+			Thread.sleep(MEASUREMENT_MILLIS);
+			stop.set(true);
+
+			long rows = 0L;
+			for (Future<Long> result : results) {
+				rows += result.get();
+			}
+			return rows * 1000.0 / MEASUREMENT_MILLIS;
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.Values;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Measures the cost of the first request on a new codec, with and without warm-up. Not part of the regular build, run
+ * with {@code ./mvnw test -Dtest=JoltCodecStartupBenchmark}.
+ */
+class JoltCodecStartupBenchmark {
+
+	private static final int ROUNDS = 50;
+
+	private static final Object ROW = List.of(
+		1, 2147483649L, 42.23, "a string", true, LocalDate.of(2020, 12, 14), ZonedDateTime.now(ZoneOffset.UTC),
+		Values.pointValue(CoordinateReferenceSystem.WGS84, 12.994823, 55.612191),
+		Map.of("aList", List.of("s1", "s2"), "aDate", LocalDate.of(2015, 7, 21))
+	);
+
+	private static final String DOCUMENT = "{\"[]\":[{\"Z\":\"1\"},{\"R\":\"42.23\"},{\"U\":\"a\"},{\"T\":\"2020-12-14\"},"
+		+ "{\"{}\":{\"a\":{\"@\":\"SRID=4326;POINT(12.994823 55.612191)\"}}}]}";
+
+	@Test
+	void firstRequestLatency() throws JsonProcessingException {
+
+		// Load all classes involved once, so that the rounds only measure the per codec costs
+		new JoltCodec(true).warmUp();
+		new JoltCodec(false).warmUp();
+
+		for (boolean strictModeEnabled : new boolean[] { true, false }) {
+			report("cold, " + mode(strictModeEnabled), () -> new JoltCodec(strictModeEnabled));
+			report("warm, " + mode(strictModeEnabled), () -> new JoltCodec(strictModeEnabled).warmUp());
+		}
+	}
+
+	private static void report(String name, Supplier<JoltCodec> codecSupplier) throws JsonProcessingException {
+
+		long creation = 0L;
+		long firstWrite = 0L;
+		long firstRead = 0L;
+		for (int i = 0; i < ROUNDS; ++i) {
+			long start = System.nanoTime();
+			var codec = codecSupplier.get();
+			long created = System.nanoTime();
+			codec.writeValueAsBytes(ROW);
+			long written = System.nanoTime();
+			codec.readValue(DOCUMENT, Object.class);
+			long read = System.nanoTime();
+
+			creation += created - start;
+			firstWrite += written - created;
+			firstRead += read - written;
+		}
+		System.out.println(String.format("%-14s creation: %8.1fus, first write: %8.1fus, first read: %8.1fus", name,
+			creation / 1000.0 / ROUNDS, firstWrite / 1000.0 / ROUNDS, firstRead / 1000.0 / ROUNDS));
+	}
+
+	private static String mode(boolean strictModeEnabled) {
+		return strictModeEnabled ? "strict" : "sparse";
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+class JoltDecodingLimitsTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private final ObjectReader reader = objectMapper.readerWithLimits(Object.class, JoltDecodingLimits.unlimited()
+		.withMaxDepth(8)
+		.withMaxCollectionSize(3)
+		.withMaxStringLength(10)
+		.withMaxBinaryLength(4)
+		.withMaxInputLength(1_000));
+
+	@Test
+	void shouldDecodeWithinLimits() throws IOException {
+
+		var document = objectMapper.writeValueAsString(List.of(Map.of("a", "0123456789"), List.of(1, 2, 3)));
+		Object value = reader.readValue(document);
+		assertThat(value).isEqualTo(List.of(Map.of("a", "0123456789"), List.of(1, 2, 3)));
+		assertThat((byte[]) reader.readValue("{\"#\":\"01020304\"}")).isEqualTo(new byte[] { 1, 2, 3, 4 });
+	}
+
+	@Test
+	void shouldLimitDepth() {
+
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue("{\"[]\":[{\"[]\":[{\"[]\":[{\"[]\":[{\"[]\":[]}]}]}]}]}"))
+			.withMessageContaining("Maximum depth of 8 exceeded");
+	}
+
+	@Test
+	void shouldLimitCollectionSize() {
+
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue(objectMapper.writeValueAsString(List.of(1, 2, 3, 4))))
+			.withMessageContaining("Maximum collection size of 3 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue(objectMapper.writeValueAsString(Map.of("a", 1, "b", 2, "c", 3, "d", 4))))
+			.withMessageContaining("Maximum collection size of 3 exceeded");
+	}
+
+	@Test
+	void shouldLimitStringsAndKeys() {
+
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue("{\"U\":\"0123456789A\"}"))
+			.withMessageContaining("Maximum string length of 10 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue("{\"{}\":{\"0123456789A\":{\"Z\":\"1\"}}}"))
+			.withMessageContaining("Maximum string length of 10 exceeded");
+	}
+
+	@Test
+	void shouldLimitBinariesBeforeDecoding() {
+
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue("{\"#\":\"0102030405\"}"))
+			.withMessageContaining("Maximum binary length of 4 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue("{\"#64\":\"AQIDBAUG\"}"))
+			.withMessageContaining("Maximum binary length of 4 exceeded");
+	}
+
+	@Test
+	void shouldStopReadingEndlessStrings() {
+
+		var unlimitedInput = objectMapper.readerWithLimits(Object.class, JoltDecodingLimits.unlimited()
+			.withMaxStringLength(10)
+			.withMaxBinaryLength(4));
+
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> unlimitedInput.readValue(endless("{\"U\":\"", 'x')))
+			.withMessageContaining("Maximum string length of 10 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> unlimitedInput.readValue(new InputStreamReader(endless("{\"U\":\"", 'x'),
+				StandardCharsets.UTF_8)))
+			.withMessageContaining("Maximum string length of 10 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> unlimitedInput.readValue(endless("{\"#\":\"", '0')))
+			.withMessageContaining("Maximum binary length of 4 exceeded");
+	}
+
+	private static InputStream endless(String prefix, char fill) {
+
+		var start = prefix.getBytes(StandardCharsets.UTF_8);
+		return new InputStream() {
+			private int position;
+
+			@Override
+			public int read() {
+				return position < start.length ? start[position++] : fill;
+			}
+		};
+	}
+
+	@Test
+	void shouldLimitInputLength() {
+
+		var document = "{\"U\":\"" + "x".repeat(2_000) + "\"}";
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue(document))
+			.withMessageContaining("Maximum input length of 1000 exceeded");
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8))))
+			.withMessageContaining("Maximum input length of 1000 exceeded");
+	}
+
+	@Test
+	void shouldStopReadingEndlessInput() {
+
+		var endlessWhitespace = new InputStream() {
+			@Override
+			public int read() {
+				return ' ';
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				Arrays.fill(b, off, off + len, (byte) ' ');
+				return len;
+			}
+		};
+		assertThatExceptionOfType(JsonProcessingException.class)
+			.isThrownBy(() -> reader.readValue(endlessWhitespace))
+			.withMessageContaining("Maximum input length of 1000 exceeded");
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+
+class JoltDeflaterOutputStreamTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private final Object row = List.of(Map.of("name", "Keanu Reeves", "born", 1964), List.of(1, "The Matrix", 42.5, true));
+
+	private byte[] compress(JoltCompressionDictionary dictionary) throws IOException {
+
+		var result = new ByteArrayOutputStream();
+		objectMapper.writeValue(new JoltDeflaterOutputStream(result, dictionary, Deflater.DEFAULT_COMPRESSION), row);
+		return result.toByteArray();
+	}
+
+	@Test
+	void shouldRoundTrip() throws IOException {
+
+		var dictionary = JoltCompressionDictionary.of(List.of("born", "name"));
+		var compressed = compress(dictionary);
+
+		var result = objectMapper.readValue(new JoltInflaterInputStream(new ByteArrayInputStream(compressed), dictionary), Object.class);
+		assertThat(result).isEqualTo(row);
+	}
+
+	@Test
+	void shouldCompressSmallDocumentsBetterThanPlainDeflate() throws IOException {
+
+		var plain = new ByteArrayOutputStream();
+		objectMapper.writeValue(new DeflaterOutputStream(plain), row);
+
+		var withSigils = compress(JoltCompressionDictionary.ofSigils());
+		var withKeys = compress(JoltCompressionDictionary.of(List.of("born", "name")));
+
+		assertThat(withSigils.length).isLessThan(plain.size());
+		assertThat(withKeys.length).isLessThan(withSigils.length);
+	}
+
+	@Test
+	void shouldDetectDifferentDictionaries() throws IOException {
+
+		var compressed = compress(JoltCompressionDictionary.of(List.of("born", "name")));
+
+		try (var in = new JoltInflaterInputStream(new ByteArrayInputStream(compressed))) {
+			assertThatExceptionOfType(ZipException.class).isThrownBy(in::readAllBytes);
+		}
+	}
+}
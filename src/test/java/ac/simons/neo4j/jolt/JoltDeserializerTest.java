@@ -3,6 +3,9 @@ package ac.simons.neo4j.jolt;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,6 +36,7 @@ import org.neo4j.values.storable.Values;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
 
 public class JoltDeserializerTest {
 
@@ -81,6 +85,17 @@ public class JoltDeserializerTest {
 			assertThat(result).isEqualTo("Hello, World");
 		}
 
+		@Test
+		void shouldDeserializeStringAsReader() throws IOException {
+
+			var largeString = "Hello, World\n".repeat(10_000);
+			var result = objectMapper.readValue(objectMapper.writeValueAsString(largeString), Reader.class);
+
+			var content = new StringWriter();
+			result.transferTo(content);
+			assertThat(content.toString()).isEqualTo(largeString);
+		}
+
 		@Test
 		void shouldDeserializePoint() throws JsonProcessingException {
 
@@ -88,6 +103,14 @@ public class JoltDeserializerTest {
 			var result = objectMapper.readValue("{\"@\":\"SRID=4326;POINT(12.994823 55.612191)\"}", Point.class);
 			assertThat(result).isEqualTo(point);
 		}
+
+		@Test
+		void shouldFailOnUnknownSigil() {
+
+			assertThatExceptionOfType(InvalidTypeIdException.class)
+				.isThrownBy(() -> objectMapper.readValue("{\"X\":\"123\"}", Object.class))
+				.withMessageContaining("No Sigil with value 'X'.");
+		}
 	}
 
 	@Nested
@@ -128,6 +151,14 @@ public class JoltDeserializerTest {
 				.readValue("{\"#\":\"0001020304050608090A0B0C0D0E0F10\"}", byte[].class);
 			assertThat(result).isEqualTo(new byte[] { 0, 1, 2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
 		}
+
+		@Test
+		void shouldDeserializeBase64ByteArray() throws JsonProcessingException {
+
+			var result = objectMapper
+				.readValue("{\"#64\":\"AAECAwQFBggJCgsMDQ4PEA==\"}", byte[].class);
+			assertThat(result).isEqualTo(new byte[] { 0, 1, 2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+		}
 	}
 
 	@Nested
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+class JoltEntityCacheIT {
+
+	private static Neo4j neo4j;
+
+	private final JoltCodec codec = new JoltCodec(true);
+
+	private final JoltEntityCache cache = JoltEntityCache.register(neo4j.databaseManagementService(),
+		neo4j.defaultDatabaseService().databaseName(), 100);
+
+	private final ObjectWriter writer = codec.writerWithEntityCache(cache);
+
+	@BeforeAll
+	static void startNeo4j() {
+
+		neo4j = Neo4jBuilders
+			.newInProcessBuilder()
+			.withDisabledServer()
+			.withFixture("CREATE (:Tenant {name: 'a'})-[:CONFIGURED_BY {since: 2020}]->(:Configuration {value: 1})")
+			.withFixture("CREATE (:Person {name: 'Müller'})")
+			.build();
+	}
+
+	@AfterEach
+	void closeCache() {
+
+		cache.close();
+	}
+
+	private String[] write(String query) throws IOException {
+		return write(query, writer, codec.writer());
+	}
+
+	private static String[] write(String query, ObjectWriter cached, ObjectWriter uncached) throws IOException {
+
+		try (var tx = database().beginTx()) {
+			var row = tx.execute(query).next();
+			var value = row.values().iterator().next();
+			return new String[] { cached.writeValueAsString(value), uncached.writeValueAsString(value) };
+		}
+	}
+
+	private static GraphDatabaseService database() {
+		return neo4j.defaultDatabaseService();
+	}
+
+	@Test
+	void shouldWriteCachedEntities() throws IOException {
+
+		for (String query : List.of("MATCH (n:Tenant) RETURN n", "MATCH ()-[r]->() RETURN r",
+			"MATCH p = ()-->() RETURN p")) {
+			var first = write(query);
+			assertThat(first[0]).isEqualTo(first[1]);
+
+			var second = write(query);
+			assertThat(second[0]).isEqualTo(first[1]);
+		}
+		assertThat(cache.size()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldEvictChangedEntities() throws IOException {
+
+		write("MATCH (n:Tenant) RETURN n");
+		write("MATCH ()-[r]->() RETURN r");
+		write("MATCH (n:Configuration) RETURN n");
+		assertThat(cache.size()).isEqualTo(3);
+
+		try (var tx = database().beginTx()) {
+			tx.findNode(Label.label("Tenant"), "name", "a").addLabel(Label.label("Customer"));
+			tx.commit();
+		}
+		assertThat(cache.size()).isEqualTo(2);
+
+		try (var tx = database().beginTx()) {
+			tx.execute("MATCH ()-[r]->() SET r.since = 2021").close();
+			tx.commit();
+		}
+		assertThat(cache.size()).isEqualTo(1);
+
+		var node = write("MATCH (n:Tenant) RETURN n");
+		assertThat(node[0]).isEqualTo(node[1]).contains("Customer");
+		var relationship = write("MATCH ()-[r]->() RETURN r");
+		assertThat(relationship[0]).isEqualTo(relationship[1]).contains("2021");
+	}
+
+	@Test
+	void shouldNotEvictOnRollback() throws IOException {
+
+		write("MATCH (n:Configuration) RETURN n");
+
+		try (var tx = database().beginTx()) {
+			tx.execute("MATCH (n:Configuration) SET n.value = 2").close();
+			tx.rollback();
+		}
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
+	@Test
+	// ESCAPE_NON_ASCII is the generator feature whose effect is easiest to see in the cached output
+	@SuppressWarnings("deprecation")
+	void shouldKeepGeneratorSettings() throws IOException {
+
+		var query = "MATCH (n:Person) RETURN n";
+		var escaping = writer.with(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+		var uncachedEscaping = codec.writer().with(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+		for (int i = 0; i < 2; ++i) {
+			var escaped = write(query, escaping, uncachedEscaping);
+			assertThat(escaped[0]).isEqualTo(escaped[1]).contains("M\\u00FCller");
+
+			var plain = write(query);
+			assertThat(plain[0]).isEqualTo(plain[1]).contains("Müller");
+		}
+		assertThat(cache.size()).isEqualTo(1);
+
+		var pretty = write(query, writer.withDefaultPrettyPrinter(), codec.writer().withDefaultPrettyPrinter());
+		assertThat(pretty[0]).isEqualTo(pretty[1]);
+	}
+
+	@Test
+	void shouldRejectIndentingCodecs() {
+
+		var indenting = new JoltCodec(true);
+		indenting.enable(SerializationFeature.INDENT_OUTPUT);
+		var otherCache = JoltEntityCache.register(neo4j.databaseManagementService(),
+			database().databaseName(), 100);
+		try {
+			assertThatIllegalArgumentException().isThrownBy(() -> indenting.writerWithEntityCache(otherCache));
+		} finally {
+			otherCache.close();
+		}
+	}
+
+	@Test
+	void shouldOnlyBeUsedWithOneCodec() {
+
+		assertThatIllegalArgumentException().isThrownBy(() -> new JoltCodec(false).writerWithEntityCache(cache));
+	}
+
+	@AfterAll
+	static void stopNeo4j() {
+
+		neo4j.close();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.SettingDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JoltEventsTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void shouldRecordEncodeAndDecode() throws IOException {
+
+		List<RecordedEvent> events = record(() -> {
+			var json = objectMapper.writeValueAsString(List.of(1L, "x"));
+			objectMapper.readValue(json, Object.class);
+		});
+
+		var encode = events.stream().filter(e -> e.getEventType().getName().equals("ac.simons.neo4j.jolt.Encode"))
+			.collect(Collectors.toList());
+		assertThat(encode).hasSize(1);
+		assertThat(encode.get(0).getBoolean("strict")).isTrue();
+		assertThat(encode.get(0).getLong("bytes")).isEqualTo(28L);
+		assertThat(encode.get(0).getLong("rows")).isEqualTo(1L);
+
+		var decode = events.stream().filter(e -> e.getEventType().getName().equals("ac.simons.neo4j.jolt.Decode"))
+			.collect(Collectors.toList());
+		assertThat(decode).hasSize(1);
+		assertThat(decode.get(0).getLong("bytes")).isEqualTo(28L);
+	}
+
+	@Test
+	void shouldRecordAsyncDecoding() throws IOException {
+
+		List<RecordedEvent> events = record(() -> {
+			try (var decoder = new JoltAsyncDecoder<>(objectMapper, Object.class, row -> {
+			})) {
+				decoder.feed("{\"[]\":[{\"Z\":\"1\"}]}\n{\"Z\":".getBytes(StandardCharsets.UTF_8));
+				decoder.feed("\"2\"}".getBytes(StandardCharsets.UTF_8));
+				decoder.endOfInput();
+			}
+		});
+
+		var decode = events.stream().filter(e -> e.getEventType().getName().equals("ac.simons.neo4j.jolt.Decode"))
+			.collect(Collectors.toList());
+		assertThat(decode).hasSize(1);
+		assertThat(decode.get(0).getLong("rows")).isEqualTo(2L);
+		assertThat(decode.get(0).getLong("bytes")).isEqualTo(28L);
+	}
+
+	@Test
+	void shouldOnlyEnableEncodeAndDecodeByDefault() {
+
+		assertThat(defaultSettings(JoltEvents.EncodeEvent.class)).containsEntry("enabled", "true")
+			.containsEntry("stackTrace", "false");
+		assertThat(defaultSettings(JoltEvents.DecodeEvent.class)).containsEntry("enabled", "true")
+			.containsEntry("stackTrace", "false");
+		assertThat(defaultSettings(JoltEvents.LargeValueEvent.class)).containsEntry("enabled", "false");
+	}
+
+	private static Map<String, String> defaultSettings(Class<? extends Event> eventClass) {
+
+		return EventType.getEventType(eventClass).getSettingDescriptors().stream()
+			.collect(Collectors.toMap(SettingDescriptor::getName, SettingDescriptor::getDefaultValue));
+	}
+
+	@Test
+	void shouldKeepCodecAsCodecOfItsFactory() throws IOException {
+
+		assertThat(objectMapper.getFactory().getCodec()).isSameAs(objectMapper);
+
+		var result = new StringWriter();
+		try (var generator = objectMapper.getFactory().createGenerator(result)) {
+			generator.writeObject(List.of(1L, "a"));
+		}
+		assertThat(result.toString()).isEqualTo("{\"[]\":[{\"Z\":\"1\"},{\"U\":\"a\"}]}");
+		try (var parser = objectMapper.getFactory().createParser("{\"Z\":\"1\"}")) {
+			assertThat(parser.readValueAs(Object.class)).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void shouldCountEntitiesAndRows() throws IOException {
+
+		var json = "{\"..\":[{\"()\":[1,[],{}]},{\"->\":[10,1,\"KNOWS\",2,{}]},{\"()\":[2,[],{}]}]}\n"
+			+ "{\"()\":[3,[],{}]}";
+		List<RecordedEvent> events = record(() -> {
+			try (var parser = objectMapper.getFactory().createParser(json)) {
+				while (parser.nextToken() != null) {
+				}
+			}
+		});
+
+		var decode = events.stream().filter(e -> e.getEventType().getName().equals("ac.simons.neo4j.jolt.Decode"))
+			.collect(Collectors.toList());
+		assertThat(decode).hasSize(1);
+		assertThat(decode.get(0).getLong("rows")).isEqualTo(2L);
+		assertThat(decode.get(0).getLong("nodes")).isEqualTo(3L);
+		assertThat(decode.get(0).getLong("relationships")).isEqualTo(1L);
+		assertThat(decode.get(0).getLong("paths")).isEqualTo(1L);
+	}
+
+	@Test
+	void shouldRecordLargeValues() throws IOException {
+
+		var values = new ArrayList<Object>();
+		for (int i = 0; i < 50; ++i) {
+			values.add("value" + i);
+		}
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("a", 1L);
+		row.put("b", values);
+
+		List<RecordedEvent> events = record(() -> objectMapper.writeValueAsBytes(row));
+
+		var largeValues = events.stream()
+			.filter(e -> e.getEventType().getName().equals("ac.simons.neo4j.jolt.LargeValue"))
+			.collect(Collectors.toList());
+		assertThat(largeValues).hasSize(2);
+		assertThat(largeValues.get(0).getString("sigil")).isEqualTo("[]");
+		assertThat(largeValues.get(0).getInt("depth")).isEqualTo(2);
+		assertThat(largeValues.get(1).getString("sigil")).isEqualTo("{}");
+		assertThat(largeValues.get(1).getBoolean("encoding")).isTrue();
+	}
+
+	@Test
+	void shouldParseSizeThresholds() {
+
+		assertThat(JoltEvents.SizeThreshold.parse("512")).isEqualTo(512L);
+		assertThat(JoltEvents.SizeThreshold.parse("2 kB")).isEqualTo(2048L);
+		assertThat(JoltEvents.SizeThreshold.parse("1MB")).isEqualTo(1024L * 1024L);
+		assertThat(JoltEvents.SizeThreshold.parse("lots")).isEqualTo(JoltEvents.DEFAULT_SIZE_THRESHOLD);
+	}
+
+	private List<RecordedEvent> record(Action action) throws IOException {
+
+		try (var recording = new Recording()) {
+			recording.enable("ac.simons.neo4j.jolt.Encode");
+			recording.enable("ac.simons.neo4j.jolt.Decode");
+			recording.enable("ac.simons.neo4j.jolt.LargeValue").with("sizeThreshold", "100 b");
+			recording.start();
+			action.run();
+			recording.stop();
+
+			var file = tempDir.resolve("events.jfr");
+			recording.dump(file);
+			try {
+				return RecordingFile.readAllEvents(file).stream()
+					.sorted((e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime()))
+					.collect(Collectors.toList());
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	interface Action {
+
+		void run() throws IOException;
+	}
+}
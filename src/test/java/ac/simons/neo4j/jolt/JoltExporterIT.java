@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.graphdb.Label;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JoltExporterIT {
+
+	private static Neo4j neo4j;
+
+	private final JoltCodec codec = new JoltCodec(true);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeAll
+	static void startNeo4j() {
+
+		neo4j = Neo4jBuilders
+			.newInProcessBuilder()
+			.withDisabledServer()
+			.withFixture("UNWIND range(1, 1000) AS i "
+				+ "CREATE (n:Person {id: i, name: 'Person ' + i}) "
+				+ "WITH n, i WHERE i % 2 = 0 "
+				+ "CREATE (n)-[:OWNS {since: i}]->(:Thing {id: i})")
+			.build();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Long> readIds(Path directory, List<JoltExporter.Segment> segments, String sigil) throws IOException {
+
+		var ids = new ArrayList<Long>();
+		for (JoltExporter.Segment segment : segments) {
+			for (String line : Files.readAllLines(directory.resolve(segment.getFileName()))) {
+				var entity = (List<Object>) objectMapper.readValue(line, Map.class).get(sigil);
+				var id = ((Number) entity.get(0)).longValue();
+				assertThat(id).isGreaterThanOrEqualTo(segment.getFromId());
+				assertThat(id).isLessThan(segment.getToId());
+				ids.add(id);
+			}
+		}
+		ids.sort(Long::compare);
+		return ids;
+	}
+
+	private static List<JoltExporter.Segment> ofKind(List<JoltExporter.Segment> segments, JoltExporter.Kind kind) {
+		return segments.stream().filter(segment -> segment.getKind() == kind).collect(Collectors.toList());
+	}
+
+	@Test
+	void shouldExportAllEntitiesIntoSegments() throws IOException {
+
+		var segments = new JoltExporter(neo4j.defaultDatabaseService(), codec, 4).export(tempDir);
+
+		var nodeSegments = ofKind(segments, JoltExporter.Kind.NODES);
+		var relationshipSegments = ofKind(segments, JoltExporter.Kind.RELATIONSHIPS);
+		assertThat(nodeSegments).hasSize(4);
+		assertThat(relationshipSegments).hasSize(4);
+		assertThat(nodeSegments.stream().mapToLong(JoltExporter.Segment::getRecordCount).sum()).isEqualTo(1500L);
+
+		var nodeIds = readIds(tempDir, nodeSegments, "()");
+		assertThat(nodeIds).containsExactlyElementsOf(LongStream.range(0, 1500).boxed().collect(Collectors.toList()));
+		assertThat(readIds(tempDir, relationshipSegments, "->")).hasSize(500);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void shouldWriteManifest() throws IOException {
+
+		var segments = new JoltExporter(neo4j.defaultDatabaseService(), codec, 2).export(tempDir);
+
+		var manifest = objectMapper.readValue(tempDir.resolve(JoltExporter.MANIFEST_FILE_NAME).toFile(), Map.class);
+		var entries = (List<Map<String, Object>>) manifest.get("segments");
+		assertThat(entries).hasSize(segments.size());
+		for (int i = 0; i < segments.size(); ++i) {
+			assertThat(entries.get(i).get("file")).isEqualTo(segments.get(i).getFileName());
+			assertThat(((Number) entries.get(i).get("records")).longValue()).isEqualTo(segments.get(i).getRecordCount());
+			assertThat(Files.exists(tempDir.resolve(segments.get(i).getFileName()))).isTrue();
+		}
+	}
+
+	@Test
+	void shouldExportNodesWithLabel() throws IOException {
+
+		var segments = new JoltExporter(neo4j.defaultDatabaseService(), codec, 3).export(tempDir, Label.label("Thing"));
+
+		assertThat(segments).hasSize(3);
+		assertThat(segments).allMatch(segment -> segment.getKind() == JoltExporter.Kind.NODES);
+		assertThat(readIds(tempDir, segments, "()")).hasSize(500);
+	}
+
+	@Test
+	void shouldFailWithoutManifestWhenASegmentFails() throws IOException {
+
+		Files.createDirectory(tempDir.resolve("nodes-0001.jolt"));
+
+		var exporter = new JoltExporter(neo4j.defaultDatabaseService(), codec, 4);
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> exporter.export(tempDir));
+		assertThat(Files.exists(tempDir.resolve(JoltExporter.MANIFEST_FILE_NAME))).isFalse();
+	}
+
+	@Test
+	void shouldNameSegmentsIndependentOfLocale() throws IOException {
+
+		var defaultLocale = Locale.getDefault();
+		Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+		try {
+			var segments = new JoltExporter(neo4j.defaultDatabaseService(), codec, 1).export(tempDir);
+
+			assertThat(segments.get(1).getFileName()).isEqualTo("relationships-0000.jolt");
+			assertThat(Files.readString(tempDir.resolve(JoltExporter.MANIFEST_FILE_NAME))).contains("\"relationships\"");
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	@AfterAll
+	static void stopNeo4j() {
+
+		neo4j.close();
+	}
+}
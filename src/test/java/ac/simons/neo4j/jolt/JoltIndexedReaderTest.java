@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JoltIndexedReaderTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@TempDir
+	Path tempDir;
+
+	private Path writeRecords(int numberOfRecords, String keyField) throws IOException {
+
+		var file = tempDir.resolve("records.joltx");
+		try (var writer = new JoltIndexedWriter(objectMapper, file, keyField)) {
+			for (int i = 0; i < numberOfRecords; ++i) {
+				assertThat(writer.write(Map.of("id", i, "name", "Record " + i))).isEqualTo((long) i);
+			}
+			writer.write("not a map");
+		}
+		return file;
+	}
+
+	@Test
+	void shouldReadRecordsByNumber() throws IOException {
+
+		var reader = new JoltIndexedReader(objectMapper, writeRecords(1000, null), 4096);
+
+		assertThat(reader.getRecordCount()).isEqualTo(1001L);
+		assertThat(reader.getKeyField()).isEqualTo(Optional.empty());
+		for (int i : new int[] { 0, 1, 499, 998, 999 }) {
+			Object record = reader.read(i, Map.class);
+			assertThat(record).isEqualTo(Map.of("id", i, "name", "Record " + i));
+		}
+		Object last = reader.read(1000, Object.class);
+		assertThat(last).isEqualTo("not a map");
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> reader.read(1001, Object.class));
+		assertThatIllegalStateException().isThrownBy(() -> reader.findByKey(1L, Object.class));
+	}
+
+	@Test
+	void shouldReadRecordsByKey() throws IOException {
+
+		var reader = new JoltIndexedReader(objectMapper, writeRecords(1000, "id"));
+
+		assertThat(reader.getKeyField()).isEqualTo(Optional.of("id"));
+		Object record = reader.findByKey(815L, Map.class).get();
+		assertThat(record).isEqualTo(Map.of("id", 815, "name", "Record 815"));
+		assertThat(reader.findByKey(4711L, Map.class)).isEqualTo(Optional.empty());
+	}
+
+	@Test
+	void shouldFindFirstRecordOfDuplicateKeys() throws IOException {
+
+		var file = tempDir.resolve("duplicates.joltx");
+		try (var writer = new JoltIndexedWriter(objectMapper, file, "key")) {
+			for (int i = 0; i < 500; ++i) {
+				writer.write(Map.of("key", "k" + (499 - i) % 100, "value", i));
+			}
+		}
+
+		var reader = new JoltIndexedReader(objectMapper, file);
+		for (int k = 0; k < 100; ++k) {
+			Object record = reader.findByKey("k" + k, Map.class).get();
+			assertThat(record).isEqualTo(Map.of("key", "k" + k, "value", 99 - k));
+		}
+		assertThat(reader.findByKey("k100", Map.class)).isEqualTo(Optional.empty());
+		try (var files = Files.list(tempDir)) {
+			assertThat(files.count()).isEqualTo(1L);
+		}
+	}
+
+	@Test
+	void shouldMapRecordsLargerThanSegments() throws IOException {
+
+		var file = tempDir.resolve("large.joltx");
+		var large = "x".repeat(10_000);
+		try (var writer = new JoltIndexedWriter(objectMapper, file)) {
+			writer.write(large);
+			writer.write("small");
+			writer.write(large);
+		}
+
+		var reader = new JoltIndexedReader(objectMapper, file, 16);
+		Object first = reader.read(0, String.class);
+		assertThat(first).isEqualTo(large);
+		Object second = reader.read(1, String.class);
+		assertThat(second).isEqualTo("small");
+		Object third = reader.read(2, String.class);
+		assertThat(third).isEqualTo(large);
+	}
+
+	@Test
+	void shouldRejectIncompleteContainers() throws IOException {
+
+		var file = writeRecords(10, null);
+		var bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> new JoltIndexedReader(objectMapper, file));
+	}
+}
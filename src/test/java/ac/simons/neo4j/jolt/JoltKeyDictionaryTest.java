@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+@ExtendWith(MockitoExtension.class)
+class JoltKeyDictionaryTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@Test
+	void shouldWriteKeysOnlyOnce() throws IOException {
+
+		var writer = objectMapper.writerWithKeyDictionary();
+
+		assertThat(writer.writeValueAsString(Map.of("name", "A"))).isEqualTo("{\"{}\":{\"name\":{\"U\":\"A\"}}}");
+		assertThat(writer.writeValueAsString(Map.of("name", "B"))).isEqualTo("{\"{}\":{\"~0\":{\"U\":\"B\"}}}");
+	}
+
+	@Test
+	void shouldNotUseReferencesLongerThanTheKey() throws IOException {
+
+		var writer = objectMapper.writerWithKeyDictionary();
+		writer.writeValueAsString(Map.of("a", 1));
+
+		assertThat(writer.writeValueAsString(Map.of("a", 2))).isEqualTo("{\"{}\":{\"a\":{\"Z\":\"2\"}}}");
+	}
+
+	@Test
+	void shouldEscapeKeysLookingLikeReferences() throws IOException {
+
+		var writer = objectMapper.writerWithKeyDictionary();
+		assertThat(writer.writeValueAsString(Map.of("~0", 1))).isEqualTo("{\"{}\":{\"~~0\":{\"Z\":\"1\"}}}");
+	}
+
+	@Test
+	void shouldWritePropertiesThroughTheDictionary(@Mock Relationship relationship) throws IOException {
+
+		when(relationship.getId()).thenReturn(1L);
+		when(relationship.getStartNodeId()).thenReturn(2L);
+		when(relationship.getEndNodeId()).thenReturn(3L);
+		when(relationship.getType()).thenReturn(RelationshipType.withName("KNOWS"));
+		when(relationship.getAllProperties()).thenReturn(Map.of("since", 2015));
+
+		var result = objectMapper.writerWithKeyDictionary().writeValueAsString(List.of(relationship, Map.of("since", 1)));
+		assertThat(result).isEqualTo(
+			"{\"[]\":[{\"->\":[1,2,\"KNOWS\",3,{\"since\":{\"Z\":\"2015\"}}]},{\"{}\":{\"~0\":{\"Z\":\"1\"}}}]}");
+	}
+
+	@Test
+	void shouldRoundTrip() throws IOException {
+
+		var rows = List.of(
+			Map.of("name", "A", "~tilde", 1),
+			new TreeMap<>(Map.of("name", "B", "~tilde", 2, "born", 1970)),
+			Map.of("nested", Map.of("name", "C"))
+		);
+
+		var writer = objectMapper.writerWithKeyDictionary();
+		var reader = objectMapper.readerWithKeyDictionary(Object.class);
+		for (var row : rows) {
+			assertThat((Object) reader.readValue(writer.writeValueAsString(row))).isEqualTo(row);
+		}
+	}
+
+	@Test
+	void shouldStopGrowingAtMaxSize() {
+
+		var dictionary = new JoltKeyDictionary(1);
+		assertThat(dictionary.encode("first")).isEqualTo("first");
+		assertThat(dictionary.encode("second")).isEqualTo("second");
+		assertThat(dictionary.encode("second")).isEqualTo("second");
+		assertThat(dictionary.encode("first")).isEqualTo("~0");
+		assertThat(dictionary.size()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldFailOnUnknownReferences() {
+
+		var dictionary = new JoltKeyDictionary();
+		assertThatIllegalArgumentException().isThrownBy(() -> dictionary.decode("~0"));
+	}
+
+	@Test
+	void shouldKeepKeysWithoutDictionary() throws IOException {
+
+		assertThat(objectMapper.writeValueAsString(Map.of("~0", 1))).isEqualTo("{\"{}\":{\"~0\":{\"Z\":\"1\"}}}");
+		assertThat(objectMapper.readValue("{\"{}\":{\"~0\":{\"Z\":\"1\"}}}", Map.class)).containsEntry("~0", 1);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class JoltNumberCodecTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private final char[] buffer = new char[JoltNumberCodec.MAX_LENGTH];
+
+	private final Random random = new Random(4711);
+
+	@Test
+	void shouldFormatDoublesLikeDoubleToString() {
+
+		var values = List.of(0.0, -0.0, 1.0, -1.5, 0.1 + 0.2, 1e-3, 9.999999999999998e-4, 1e7, 9999999.999999998,
+			Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY);
+		for (var value : values) {
+			assertThat(format(JoltNumberCodec.formatDouble(value, buffer, 0))).isEqualTo(Double.toString(value));
+		}
+
+		for (int i = 0; i < 100_000; ++i) {
+			var value = random.nextBoolean() ?
+				Double.longBitsToDouble(random.nextLong()) :
+				Math.round(random.nextDouble() * 1e6) / Math.pow(10, random.nextInt(8));
+			assertThat(format(JoltNumberCodec.formatDouble(value, buffer, 0))).isEqualTo(Double.toString(value));
+		}
+	}
+
+	@Test
+	void shouldFormatLongsLikeLongToString() {
+
+		for (var value : List.of(0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, random.nextLong())) {
+			assertThat(format(JoltNumberCodec.formatLong(value, buffer, 0))).isEqualTo(Long.toString(value));
+		}
+	}
+
+	@Test
+	void shouldParseLikeLongAndDouble() {
+
+		for (int i = 0; i < 100_000; ++i) {
+			var longValue = random.nextLong() >> random.nextInt(64);
+			var chars = Long.toString(longValue).toCharArray();
+			assertThat(JoltNumberCodec.parseLong(chars, 0, chars.length)).isEqualTo(longValue);
+			assertThat(JoltNumberCodec.parseNumber(chars, 0, chars.length)).isEqualTo(longValue);
+
+			var doubleValue = Double.longBitsToDouble(random.nextLong());
+			chars = Double.toString(doubleValue).toCharArray();
+			assertThat(JoltNumberCodec.parseDouble(chars, 0, chars.length)).isEqualTo(doubleValue);
+
+			var decimal = (random.nextInt(2_000_000) - 1_000_000) + "." + random.nextInt(1000);
+			chars = decimal.toCharArray();
+			assertThat(JoltNumberCodec.parseNumber(chars, 0, chars.length)).isEqualTo(Double.parseDouble(decimal));
+		}
+	}
+
+	@Test
+	void shouldParseWithinOffsets() {
+
+		var chars = "xx-42.125yy".toCharArray();
+		assertThat(JoltNumberCodec.parseDouble(chars, 2, 7)).isEqualTo(-42.125);
+		assertThat(JoltNumberCodec.parseLong(chars, 2, 3)).isEqualTo(-42L);
+		assertThat(JoltNumberCodec.parseInt(chars, 3, 2)).isEqualTo(42);
+	}
+
+	@Test
+	void shouldRejectWhatLongAndIntegerReject() {
+
+		for (var value : List.of("", "-", "1.5", "9223372036854775808")) {
+			var chars = value.toCharArray();
+			assertThatExceptionOfType(NumberFormatException.class)
+				.isThrownBy(() -> JoltNumberCodec.parseLong(chars, 0, chars.length));
+		}
+
+		var chars = "2147483648".toCharArray();
+		assertThatExceptionOfType(NumberFormatException.class)
+			.isThrownBy(() -> JoltNumberCodec.parseInt(chars, 0, chars.length));
+	}
+
+	@Test
+	void shouldRoundTripThroughTheCodec() throws IOException {
+
+		var json = objectMapper.writeValueAsString(List.of(42, 1L << 40, 0.1, -2.5e-7));
+		assertThat(json).isEqualTo("{\"[]\":[{\"Z\":\"42\"},{\"R\":\"1099511627776\"},{\"R\":\"0.1\"},{\"R\":\"-2.5E-7\"}]}");
+		assertThat(objectMapper.readValue(json, List.class)).containsExactly(42, 1L << 40, 0.1, -2.5e-7);
+	}
+
+	private String format(int length) {
+		return new String(buffer, 0, length);
+	}
+}
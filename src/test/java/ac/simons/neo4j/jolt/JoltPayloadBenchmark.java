@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+import org.neo4j.server.http.cypher.TransactionHandle;
+import org.neo4j.server.http.cypher.TransitionalTxManagementKernelTransaction;
+import org.neo4j.server.http.cypher.format.common.Neo4jJsonCodec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares response size and encode / decode time of Jolt in strict and sparse mode with the plain JSON format of the
+ * Neo4j HTTP API for a couple of representative queries. Jolt is decoded by a {@link JoltPushParser} of the codec that
+ * wrote it, as databind cannot create nodes, relationships and paths, plain JSON is parsed into a JSON tree, which is
+ * what a generic client does with it. Not part of the regular build, run with
+ * {@code ./mvnw test -Dtest=JoltPayloadBenchmark}.
+ */
+class JoltPayloadBenchmark {
+
+	private static final int ROUNDS = 20;
+
+	private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+	static {
+		QUERIES.put("scalars", "MATCH (p:Person) RETURN p.name, p.born, p.rating, p.active");
+		QUERIES.put("temporals and points", "MATCH (m:Movie) RETURN m.title, m.released, m.updatedAt, m.location");
+		QUERIES.put("lists and maps", "MATCH (m:Movie)<-[:ACTED_IN]-(p) RETURN m.title, collect(p.name), {title: m.title, cast: count(p)}");
+		QUERIES.put("nodes", "MATCH (p:Person) RETURN p");
+		QUERIES.put("relationships", "MATCH ()-[r:ACTED_IN]->() RETURN r");
+		QUERIES.put("paths", "MATCH path = (:Person)-[:ACTED_IN]->(:Movie) RETURN path");
+	}
+
+	private static Neo4j neo4j;
+
+	@FunctionalInterface
+	interface RowWriter {
+
+		void write(JsonGenerator generator, List<Object> row) throws IOException;
+	}
+
+	@FunctionalInterface
+	interface Decoder {
+
+		void decode(byte[] payload) throws IOException;
+	}
+
+	@BeforeAll
+	static void startNeo4j() {
+
+		neo4j = Neo4jBuilders
+			.newInProcessBuilder()
+			.withDisabledServer()
+			.withFixture(""
+				+ "UNWIND range(1, 200) AS i "
+				+ "CREATE (:Movie {title: 'Movie ' + i, released: date('2000-01-01') + duration({days: i}), "
+				+ "  updatedAt: datetime('2020-12-14T17:14:00+01:00[Europe/Berlin]'), "
+				+ "  location: point({latitude: 55.61 + i / 1000.0, longitude: 12.99}), tags: ['a', 'b', 'c']})")
+			.withFixture(""
+				+ "UNWIND range(1, 2000) AS i "
+				+ "MATCH (m:Movie {title: 'Movie ' + (i % 200 + 1)}) "
+				+ "CREATE (p:Person {name: 'Person ' + i, born: 1900 + i % 100, rating: i / 7.0, active: i % 2 = 0}) "
+				+ "CREATE (p)-[:ACTED_IN {roles: ['Role ' + i], since: 1990 + i % 30}]->(m)")
+			.build();
+	}
+
+	@AfterAll
+	static void stopNeo4j() {
+
+		neo4j.close();
+	}
+
+	@Test
+	void compareFormats() throws IOException {
+
+		var strict = new JoltCodec(true).warmUp();
+		var sparse = new JoltCodec(false).warmUp();
+		var parser = new ObjectMapper();
+
+		System.out.println(String.format("%-22s %-12s %12s %10s %12s %12s",
+			"query", "format", "bytes", "vs. JSON", "encode [ms]", "decode [ms]"));
+		for (var query : QUERIES.entrySet()) {
+			try (var tx = neo4j.defaultDatabaseService().beginTx()) {
+				var rows = fetch(tx, query.getValue());
+
+				var formats = new LinkedHashMap<String, RowWriter>();
+				formats.put("Jolt strict", (generator, row) -> strict.writeValue(generator, row));
+				formats.put("Jolt sparse", (generator, row) -> sparse.writeValue(generator, row));
+				formats.put("JSON", plainJson(tx));
+
+				var decoders = new LinkedHashMap<String, Decoder>();
+				decoders.put("Jolt strict", jolt(strict));
+				decoders.put("Jolt sparse", jolt(sparse));
+				decoders.put("JSON", parser::readTree);
+
+				var results = new LinkedHashMap<String, long[]>();
+				for (var format : formats.entrySet()) {
+					results.put(format.getKey(), measure(rows, strict.getFactory(), format.getValue(),
+						decoders.get(format.getKey())));
+				}
+
+				var jsonSize = results.get("JSON")[0];
+				for (var result : results.entrySet()) {
+					var measurements = result.getValue();
+					System.out.println(String.format("%-22s %-12s %12d %9.0f%% %12.2f %12.2f",
+						query.getKey(), result.getKey(), measurements[0], 100.0 * measurements[0] / jsonSize,
+						measurements[1] / 1_000_000.0, measurements[2] / 1_000_000.0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes rows the way the HTTP API does in its default row format. The codec checks whether entities have been
+	 * deleted in the current transaction and therefore needs a handle to it.
+	 */
+	private static RowWriter plainJson(Transaction tx) {
+
+		var context = mock(TransitionalTxManagementKernelTransaction.class);
+		when(context.getInternalTransaction()).thenReturn((InternalTransaction) tx);
+		var transactionHandle = mock(TransactionHandle.class);
+		when(transactionHandle.getContext()).thenReturn(context);
+		var codec = new Neo4jJsonCodec(transactionHandle);
+
+		return (generator, row) -> {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("row");
+			for (Object value : row) {
+				codec.writeValue(generator, value);
+			}
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("meta");
+			for (Object value : row) {
+				codec.writeMeta(generator, value);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		};
+	}
+
+	/**
+	 * Decodes every value, the plain JSON array around the rows is reported as a list.
+	 */
+	private static Decoder jolt(JoltCodec codec) {
+
+		var pushParser = new JoltPushParser(codec);
+		var visitor = new JoltVisitor() {
+		};
+		return payload -> pushParser.parse(new ByteArrayInputStream(payload), visitor);
+	}
+
+	private static List<List<Object>> fetch(Transaction tx, String query) {
+
+		var rows = new ArrayList<List<Object>>();
+		try (var result = tx.execute(query)) {
+			var columns = result.columns();
+			while (result.hasNext()) {
+				var record = result.next();
+				var row = new ArrayList<>(columns.size());
+				for (String column : columns) {
+					row.add(record.get(column));
+				}
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * @return size in bytes, best encoding time and best decoding time in nanoseconds
+	 */
+	private static long[] measure(List<List<Object>> rows, JsonFactory factory, RowWriter rowWriter,
+		Decoder decoder) throws IOException {
+
+		long size = 0L;
+		long bestEncode = Long.MAX_VALUE;
+		long bestDecode = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; ++i) {
+			var out = new ByteArrayOutputStream();
+			long start = System.nanoTime();
+			try (var generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+				generator.writeStartArray();
+				for (var row : rows) {
+					rowWriter.write(generator, row);
+				}
+				generator.writeEndArray();
+			}
+			long encoded = System.nanoTime();
+			decoder.decode(out.toByteArray());
+			long decoded = System.nanoTime();
+
+			size = out.size();
+			bestEncode = Math.min(bestEncode, encoded - start);
+			bestDecode = Math.min(bestDecode, decoded - encoded);
+		}
+		return new long[] { size, bestEncode, bestDecode };
+	}
+}
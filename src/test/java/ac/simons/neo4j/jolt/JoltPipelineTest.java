@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotInTransactionException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Result;
+
+@ExtendWith(MockitoExtension.class)
+class JoltPipelineTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private static void returnRows(Result result, List<String> columns, List<Map<String, Object>> rows) {
+
+		var iterator = rows.iterator();
+		when(result.columns()).thenReturn(columns);
+		when(result.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+		when(result.next()).thenAnswer(invocation -> iterator.next());
+	}
+
+	private static List<String> lines(ByteArrayOutputStream out) {
+		return List.of(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+	}
+
+	@Test
+	void shouldWriteEntitiesAfterTransactionHasBeenClosed(@Mock Result result, @Mock Node node,
+		@Mock Relationship relationship) throws IOException {
+
+		when(node.getId()).thenReturn(4711L);
+		when(node.getLabels()).thenReturn(List.of(Label.label("A")));
+		when(node.getAllProperties()).thenReturn(new TreeMap<>(Map.of("prop1", 1, "prop2", "Peng")));
+		when(relationship.getId()).thenReturn(42L);
+		when(relationship.getType()).thenReturn(RelationshipType.withName("KNOWS"));
+		when(relationship.getStartNodeId()).thenReturn(4711L);
+		when(relationship.getEndNodeId()).thenReturn(23L);
+		when(relationship.getAllProperties()).thenReturn(Map.of());
+		returnRows(result, List.of("n", "r"), List.of(Map.of("r", relationship, "n", node)));
+
+		var out = new ByteArrayOutputStream();
+		try (var writer = new JoltRecordWriter(objectMapper, out); var pipeline = new JoltPipeline(writer)) {
+			assertThat(pipeline.drain(result)).isEqualTo(1L);
+			verify(node).getAllProperties();
+			verify(relationship).getAllProperties();
+
+			lenient().when(node.getAllProperties()).thenThrow(new NotInTransactionException());
+			lenient().when(relationship.getAllProperties()).thenThrow(new NotInTransactionException());
+		}
+
+		assertThat(lines(out)).containsExactly("{\"{}\":{"
+			+ "\"n\":{\"()\":[4711,[\"A\"],{\"prop1\":{\"Z\":\"1\"},\"prop2\":{\"U\":\"Peng\"}}]},"
+			+ "\"r\":{\"->\":[42,4711,\"KNOWS\",23,{}]}}}");
+	}
+
+	@Test
+	void shouldKeepOrderWhenEncoderFallsBehind(@Mock Result result) throws IOException {
+
+		var rows = IntStream.range(0, 10_000)
+			.mapToObj(i -> Map.<String, Object>of("i", i))
+			.collect(Collectors.toList());
+		returnRows(result, List.of("i"), rows);
+
+		var out = new ByteArrayOutputStream();
+		try (var writer = new JoltRecordWriter(objectMapper, out); var pipeline = new JoltPipeline(writer, 4,
+			Thread::new)) {
+			assertThat(pipeline.drain(result)).isEqualTo(10_000L);
+		}
+
+		var expected = rows.stream().map(row -> "{\"{}\":{\"i\":{\"Z\":\"" + row.get("i") + "\"}}}")
+			.collect(Collectors.toList());
+		assertThat(lines(out)).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void shouldReportEncoderFailures(@Mock Result result) throws IOException {
+
+		returnRows(result, List.of("x"), List.of(Map.of("x", new Object())));
+
+		try (var writer = new JoltRecordWriter(objectMapper, new ByteArrayOutputStream())) {
+			var pipeline = new JoltPipeline(writer);
+			pipeline.drain(result);
+			assertThatIOException().isThrownBy(pipeline::close);
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	void ringBufferShouldHandOverAllElementsInOrder() {
+
+		var buffer = new JoltRingBuffer<Integer>(6);
+		assertThat(buffer.capacity()).isEqualTo(8);
+
+		var consumed = CompletableFuture.supplyAsync(() -> {
+			var result = new ArrayList<Integer>();
+			while (result.size() < 10_000) {
+				var element = buffer.poll();
+				if (element == null) {
+					Thread.yield();
+				} else {
+					result.add(element);
+				}
+			}
+			return result;
+		});
+
+		for (int i = 0; i < 10_000; ++i) {
+			while (!buffer.offer(i)) {
+				Thread.yield();
+			}
+		}
+
+		assertThat(consumed.join()).containsExactlyElementsOf(
+			IntStream.range(0, 10_000).boxed().collect(Collectors.toList()));
+		assertThat(buffer.poll()).isNull();
+	}
+
+	@Test
+	void ringBufferShouldReportFullAndEmpty() {
+
+		var buffer = new JoltRingBuffer<Integer>(2);
+		assertThat(buffer.isEmpty()).isTrue();
+		assertThat(buffer.isFull()).isFalse();
+
+		buffer.offer(1);
+		buffer.offer(2);
+		assertThat(buffer.isFull()).isTrue();
+		assertThat(buffer.isEmpty()).isFalse();
+
+		buffer.poll();
+		assertThat(buffer.isFull()).isFalse();
+		buffer.poll();
+		assertThat(buffer.isEmpty()).isTrue();
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+class JoltPushParserTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	/**
+	 * Records all events as strings.
+	 */
+	static class RecordingVisitor implements JoltVisitor {
+
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onNull() {
+			events.add("null");
+		}
+
+		@Override
+		public void onBoolean(boolean value) {
+			events.add("boolean " + value);
+		}
+
+		@Override
+		public void onInteger(long value) {
+			events.add("integer " + value);
+		}
+
+		@Override
+		public void onReal(double value) {
+			events.add("real " + value);
+		}
+
+		@Override
+		public void onString(char[] text, int offset, int length) {
+			events.add("string " + new String(text, offset, length));
+		}
+
+		@Override
+		public void onBinary(byte[] value) {
+			events.add("binary " + value.length);
+		}
+
+		@Override
+		public void onTemporal(char[] text, int offset, int length) {
+			events.add("temporal " + new String(text, offset, length));
+		}
+
+		@Override
+		public void onSpatial(char[] text, int offset, int length) {
+			events.add("spatial " + new String(text, offset, length));
+		}
+
+		@Override
+		public void onListStart() {
+			events.add("[");
+		}
+
+		@Override
+		public void onListEnd() {
+			events.add("]");
+		}
+
+		@Override
+		public void onMapStart() {
+			events.add("{");
+		}
+
+		@Override
+		public void onMapKey(String key) {
+			events.add("key " + key);
+		}
+
+		@Override
+		public void onMapEnd() {
+			events.add("}");
+		}
+
+		@Override
+		public void onNodeStart(long id) {
+			events.add("(" + id);
+		}
+
+		@Override
+		public void onLabel(String label) {
+			events.add("label " + label);
+		}
+
+		@Override
+		public void onNodeEnd() {
+			events.add(")");
+		}
+
+		@Override
+		public void onRelationshipStart(long id, long startNodeId, String type, long endNodeId) {
+			events.add("-[" + id + " " + startNodeId + " " + type + " " + endNodeId);
+		}
+
+		@Override
+		public void onRelationshipEnd() {
+			events.add("]-");
+		}
+
+		@Override
+		public void onProperty(String key) {
+			events.add("property " + key);
+		}
+
+		@Override
+		public void onPathStart() {
+			events.add("<");
+		}
+
+		@Override
+		public void onPathEnd() {
+			events.add(">");
+		}
+	}
+
+	private List<String> visit(JoltPushParser parser, String input) throws IOException {
+
+		var visitor = new RecordingVisitor();
+		parser.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), visitor);
+		return visitor.events;
+	}
+
+	@Test
+	void shouldReportScalarsListsAndMaps() throws IOException {
+
+		var map = new LinkedHashMap<String, Object>();
+		map.put("a", List.of(1, 3_000_000_000L, 1.5));
+		map.put("b", null);
+		map.put("c", LocalDate.of(2020, 1, 2));
+		map.put("d", new byte[] { 1, 2 });
+		map.put("e", true);
+		map.put("f", "x");
+
+		var events = visit(new JoltPushParser(objectMapper), objectMapper.writeValueAsString(map));
+		assertThat(events).containsExactly("{",
+			"key a", "[", "integer 1", "integer 3000000000", "real 1.5", "]",
+			"key b", "null",
+			"key c", "temporal 2020-01-02",
+			"key d", "binary 2",
+			"key e", "boolean true",
+			"key f", "string x",
+			"}");
+	}
+
+	@Test
+	void shouldReportSparseValues() throws IOException {
+
+		var sparseCodec = new JoltCodec(false);
+		var events = visit(new JoltPushParser(sparseCodec), sparseCodec.writeValueAsString(List.of(1, "x", false)));
+		assertThat(events).containsExactly("[", "integer 1", "string x", "boolean false", "]");
+	}
+
+	@Test
+	void shouldReportEntitiesInTheirDirection() throws IOException {
+
+		var path = "{\"..\":["
+			+ "{\"()\":[1,[\"Person\"],{\"name\":{\"U\":\"A\"}}]},"
+			+ "{\"->\":[10,1,\"KNOWS\",2,{}]},"
+			+ "{\"()\":[2,[],{}]},"
+			+ "{\"<-\":[11,2,\"LIKES\",3,{\"since\":{\"Z\":\"2020\"}}]},"
+			+ "{\"()\":[3,[],{}]}"
+			+ "]}";
+
+		var events = visit(new JoltPushParser(objectMapper), path);
+		assertThat(events).containsExactly("<",
+			"(1", "label Person", "property name", "string A", ")",
+			"-[10 1 KNOWS 2", "]-",
+			"(2", ")",
+			"-[11 3 LIKES 2", "property since", "integer 2020", "]-",
+			"(3", ")",
+			">");
+	}
+
+	@Test
+	void shouldDecodeKeysWithDictionary() throws IOException {
+
+		var writer = objectMapper.writerWithKeyDictionary();
+		var input = writer.writeValueAsString(Map.of("name", "A")) + writer.writeValueAsString(Map.of("name", "B"));
+
+		var events = visit(new JoltPushParser(objectMapper, new JoltKeyDictionary()), input);
+		assertThat(events).containsExactly("{", "key name", "string A", "}", "{", "key name", "string B", "}");
+	}
+
+	@Test
+	void shouldCountTopLevelValues() throws IOException {
+
+		var sum = new long[1];
+		var count = new JoltPushParser(objectMapper).parse(
+			new ByteArrayInputStream("{\"Z\":\"1\"}\n{\"Z\":\"2\"}\n{\"R\":\"3\"}".getBytes(StandardCharsets.UTF_8)),
+			new JoltVisitor() {
+				@Override
+				public void onInteger(long value) {
+					sum[0] += value;
+				}
+			});
+
+		assertThat(count).isEqualTo(3);
+		assertThat(sum[0]).isEqualTo(6);
+	}
+
+	@Test
+	void shouldRejectInvalidInput() {
+
+		var parser = new JoltPushParser(objectMapper);
+		for (var input : List.of("{\"X\":\"1\"}", "{\"Z\":\"a\"}", "{\"Z\":\"1\",\"U\":\"2\"}", "{}")) {
+			assertThatExceptionOfType(JsonParseException.class).isThrownBy(() -> visit(parser, input));
+		}
+	}
+}
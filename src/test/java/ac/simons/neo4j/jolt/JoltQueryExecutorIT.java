@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+class JoltQueryExecutorIT {
+
+	private static Neo4j neo4j;
+
+	private final JoltCodec codec = new JoltCodec(true);
+
+	@BeforeAll
+	static void startNeo4j() {
+
+		neo4j = Neo4jBuilders
+			.newInProcessBuilder()
+			.withDisabledServer()
+			.withFixture("UNWIND range(1, 100) AS i CREATE (:Person {id: i, name: 'Person ' + i})")
+			.build();
+	}
+
+	@Test
+	void shouldRunQueriesConcurrently() throws Exception {
+
+		var sinks = new ArrayList<ByteArrayOutputStream>();
+		var futures = new ArrayList<Future<Long>>();
+		try (var executor = new JoltQueryExecutor(neo4j.defaultDatabaseService(), codec, 4)) {
+			for (int i = 1; i <= 20; ++i) {
+				var sink = new ByteArrayOutputStream();
+				sinks.add(sink);
+				futures.add(executor.submit("MATCH (p:Person) WHERE p.id <= $limit RETURN p.id AS id, p.name AS name "
+					+ "ORDER BY id",
+					Map.of("limit", i), sink));
+			}
+		}
+
+		for (int i = 0; i < futures.size(); ++i) {
+			assertThat(futures.get(i).get()).isEqualTo(i + 1L);
+			var lines = sinks.get(i).toString(StandardCharsets.UTF_8).split("\n");
+			assertThat(lines).hasSize(i + 1);
+			assertThat(lines[0]).isEqualTo("{\"{}\":{\"id\":{\"Z\":\"1\"},\"name\":{\"U\":\"Person 1\"}}}");
+		}
+	}
+
+	@Test
+	void shouldReportFailures() {
+
+		try (var executor = new JoltQueryExecutor(neo4j.defaultDatabaseService(), codec, 1)) {
+			var future = executor.submit("RETURN 1 / $zero AS x", Map.of("zero", 0), new ByteArrayOutputStream());
+
+			assertThatExceptionOfType(ExecutionException.class).isThrownBy(future::get);
+		}
+	}
+
+	@Test
+	void shouldTerminateCancelledQueries() throws Exception {
+
+		var firstRow = new CountDownLatch(1);
+		var closed = new CountDownLatch(1);
+		var sink = new OutputStream() {
+			@Override
+			public void write(int b) {
+				firstRow.countDown();
+			}
+
+			@Override
+			public void close() {
+				closed.countDown();
+			}
+		};
+
+		try (var executor = new JoltQueryExecutor(neo4j.defaultDatabaseService(), codec, 1)) {
+			var future = executor.submit("UNWIND range(1, 100000000) AS i RETURN i", Map.of(), sink);
+			assertThat(firstRow.await(30, TimeUnit.SECONDS)).isTrue();
+
+			assertThat(future.cancel(true)).isTrue();
+			assertThatExceptionOfType(CancellationException.class).isThrownBy(future::get);
+			assertThat(closed.await(30, TimeUnit.SECONDS)).isTrue();
+
+			var next = executor.submit("RETURN 1 AS x", Map.of(), new ByteArrayOutputStream());
+			assertThat(next.get(30, TimeUnit.SECONDS)).isEqualTo(1L);
+		}
+	}
+
+	@AfterAll
+	static void stopNeo4j() {
+
+		neo4j.close();
+	}
+}
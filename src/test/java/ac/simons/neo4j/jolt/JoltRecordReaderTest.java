@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JoltRecordReaderTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@TempDir
+	Path tempDir;
+
+	private Path writeRecords(int numberOfRecords) throws IOException {
+
+		var file = tempDir.resolve("records.jolt");
+		try (var writer = new JoltRecordWriter(objectMapper, Files.newOutputStream(file))) {
+			for (int i = 0; i < numberOfRecords; ++i) {
+				writer.write(List.of(i, "a\nmulti line string " + i));
+			}
+			assertThat(writer.getRecordCount()).isEqualTo(numberOfRecords);
+		}
+		return file;
+	}
+
+	@Test
+	void shouldWriteOneRecordPerLine() throws IOException {
+
+		var file = writeRecords(2);
+		assertThat(Files.readAllLines(file)).containsExactly(
+			"{\"[]\":[{\"Z\":\"0\"},{\"U\":\"a\\nmulti line string 0\"}]}",
+			"{\"[]\":[{\"Z\":\"1\"},{\"U\":\"a\\nmulti line string 1\"}]}"
+		);
+	}
+
+	@Test
+	void shouldSplitAtRecordBoundaries() throws IOException {
+
+		var file = writeRecords(1_000);
+		var reader = new JoltRecordReader(objectMapper, file, 128);
+		assertThat(reader.getNumberOfSegments()).isGreaterThan(1);
+
+		var records = reader.records(List.class, true).collect(Collectors.toList());
+		assertThat(records).hasSize(1_000);
+		assertThat(records).extracting(record -> record.get(0))
+			.containsExactlyElementsOf(IntStream.range(0, 1_000).boxed().collect(Collectors.toList()));
+	}
+
+	@Test
+	void shouldDecodeUnordered() throws IOException {
+
+		var file = writeRecords(1_000);
+		var reader = new JoltRecordReader(objectMapper, file, 128);
+
+		var sum = reader.records(List.class, false).mapToInt(record -> (Integer) record.get(0)).sum();
+		assertThat(sum).isEqualTo(IntStream.range(0, 1_000).sum());
+	}
+
+	@Test
+	void shouldHandleEmptyFiles() throws IOException {
+
+		var file = writeRecords(0);
+		var reader = new JoltRecordReader(objectMapper, file);
+		assertThat(reader.getNumberOfSegments()).isZero();
+		assertThat(reader.records(Object.class, true)).isEmpty();
+	}
+}
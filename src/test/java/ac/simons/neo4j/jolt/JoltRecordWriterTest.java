@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class JoltRecordWriterTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	/**
+	 * Records the number of records that reached the stream at each flush.
+	 */
+	private static class FlushRecordingStream extends ByteArrayOutputStream {
+
+		final List<Integer> recordsAtFlush = new ArrayList<>();
+
+		@Override
+		public void flush() {
+			recordsAtFlush.add((int) toString().chars().filter(c -> c == '\n').count());
+		}
+	}
+
+	private List<Integer> writeRecords(int numberOfRecords, JoltFlushPolicy flushPolicy) throws IOException {
+
+		var out = new FlushRecordingStream();
+		try (var writer = new JoltRecordWriter(objectMapper, out, flushPolicy)) {
+			for (int i = 0; i < numberOfRecords; ++i) {
+				writer.write(List.of(i, "a record"));
+			}
+		}
+		return out.recordsAtFlush;
+	}
+
+	@Test
+	void shouldOnlyFlushOnCloseByDefault() throws IOException {
+
+		assertThat(writeRecords(10, JoltFlushPolicy.whenBufferFull())).containsExactly(10);
+	}
+
+	@Test
+	void shouldFlushAfterRecords() throws IOException {
+
+		assertThat(writeRecords(10, JoltFlushPolicy.afterRecords(4))).containsExactly(4, 8, 10);
+	}
+
+	@Test
+	void shouldFlushAfterBytes() throws IOException {
+
+		var recordSize = objectMapper.writeValueAsBytes(List.of(0, "a record")).length + 1;
+		assertThat(writeRecords(6, JoltFlushPolicy.afterBytes(2L * recordSize))).containsExactly(2, 4, 6, 6);
+	}
+
+	@Test
+	void shouldFlushAfterLatencyBudget() throws IOException {
+
+		assertThat(writeRecords(3, JoltFlushPolicy.afterLatency(Duration.ZERO))).containsExactly(1, 2, 3, 3);
+	}
+
+	@Test
+	void shouldFlushFirstRecordsImmediatelyWhenAdaptive() throws IOException {
+
+		assertThat(writeRecords(10, JoltFlushPolicy.adaptive(Long.MAX_VALUE, Duration.ofDays(1))))
+			.containsExactly(1, 2, 4, 8, 10);
+	}
+}
@@ -18,6 +18,7 @@ package ac.simons.neo4j.jolt;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.io.StringReader;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -135,6 +136,14 @@ class JoltSerializerTest {
 			assertThat(result).isEqualTo("{\"U\":\"Hello, World\"}");
 		}
 
+		@Test
+		void shouldSerializeReaderLikeString() throws JsonProcessingException {
+
+			var largeString = "Hello, World\n".repeat(10_000);
+			var result = objectMapper.writeValueAsString(new StringReader(largeString));
+			assertThat(result).isEqualTo(objectMapper.writeValueAsString(largeString));
+		}
+
 		@Test
 		void shouldSerializePoint() throws JsonProcessingException {
 
@@ -218,6 +227,14 @@ class JoltSerializerTest {
 				.writeValueAsString(new byte[] { 0, 1, 2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
 			assertThat(result).isEqualTo("{\"#\":\"0001020304050608090A0B0C0D0E0F10\"}");
 		}
+
+		@Test
+		void shouldSerializeByteArrayAsBase64() throws JsonProcessingException {
+
+			var result = new JoltCodec(true, JoltCodec.BinaryEncoding.BASE64)
+				.writeValueAsString(new byte[] { 0, 1, 2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+			assertThat(result).isEqualTo("{\"#64\":\"AAECAwQFBggJCgsMDQ4PEA==\"}");
+		}
 	}
 
 	@Nested
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JoltSpillingOutputStreamTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	@TempDir
+	Path tempDir;
+
+	private static final List<Map<String, Object>> ROWS = IntStream.range(0, 10_000)
+		.mapToObj(i -> Map.<String, Object>of("id", i, "name", "Row " + i))
+		.collect(Collectors.toList());
+
+	@Test
+	void shouldKeepSmallOutputInMemory() throws IOException {
+
+		var out = new JoltSpillingOutputStream(1024, tempDir);
+		objectMapper.writeValue(out, Map.of("a", 1));
+
+		assertThat(out.getSpilledBytes()).isZero();
+		assertThat(out.getInputStream().readAllBytes()).isEqualTo(objectMapper.writeValueAsBytes(Map.of("a", 1)));
+	}
+
+	@Test
+	void shouldSpillWhenConsumerIsSlow() throws IOException {
+
+		var out = new JoltSpillingOutputStream(1024, tempDir);
+		objectMapper.writeValue(out, ROWS);
+
+		assertThat(out.getSpilledBytes()).isPositive();
+		try (var in = out.getInputStream()) {
+			assertThat(objectMapper.readValue(in, List.class)).isEqualTo(ROWS);
+		}
+		assertThat(Files.list(tempDir)).isEmpty();
+	}
+
+	@Test
+	void shouldStreamToConcurrentConsumer() throws Exception {
+
+		var out = new JoltSpillingOutputStream(4096, tempDir);
+		var consumed = CompletableFuture.supplyAsync(() -> {
+			var result = new ByteArrayOutputStream();
+			try (var in = out.getInputStream()) {
+				in.transferTo(result);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return result.toByteArray();
+		});
+
+		try (var writer = new JoltRecordWriter(objectMapper, out, JoltFlushPolicy.afterRecords(1))) {
+			for (var row : ROWS) {
+				writer.write(row);
+			}
+		}
+
+		var expected = new ByteArrayOutputStream();
+		try (var writer = new JoltRecordWriter(objectMapper, expected)) {
+			for (var row : ROWS) {
+				writer.write(row);
+			}
+		}
+		assertThat(consumed.get()).isEqualTo(expected.toByteArray());
+	}
+
+	@Test
+	void shouldFailWritesAfterConsumerHasClosed() throws IOException {
+
+		var out = new JoltSpillingOutputStream(1024, tempDir);
+		out.getInputStream().close();
+
+		assertThatIOException().isThrownBy(() -> out.write(1));
+	}
+}
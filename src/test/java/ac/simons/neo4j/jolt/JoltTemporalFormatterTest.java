@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.values.storable.DurationValue;
+
+class JoltTemporalFormatterTest {
+
+	private final JoltCodec objectMapper = new JoltCodec(true);
+
+	private final char[] buffer = new char[JoltTemporalFormatter.MAX_LENGTH + 64];
+
+	private final Random random = new Random(4711);
+
+	private LocalDateTime randomLocalDateTime() {
+
+		var year = random.nextBoolean() ? random.nextInt(3000) : random.nextInt(2_000_000) - 1_000_000;
+		var nanos = random.nextBoolean() ? random.nextInt(1000) * 1_000_000 : random.nextInt(1_000_000_000);
+		return LocalDateTime.of(year, 1 + random.nextInt(12), 1 + random.nextInt(28),
+			random.nextInt(24), random.nextInt(60), random.nextInt(60), nanos);
+	}
+
+	@Test
+	void shouldFormatLikeIsoFormatters() {
+
+		var zones = List.of(ZoneOffset.UTC, ZoneOffset.ofHoursMinutesSeconds(-3, -30, -15), ZoneId.of("Europe/Berlin"),
+			ZoneId.of("America/Argentina/Buenos_Aires"), ZoneId.of("UTC+01:00"));
+		for (int i = 0; i < 10_000; ++i) {
+			var localDateTime = randomLocalDateTime();
+			var offset = ZoneOffset.ofTotalSeconds(random.nextInt(36 * 60) * 60 - 18 * 3600);
+			var zonedDateTime = ZonedDateTime.of(localDateTime, zones.get(random.nextInt(zones.size())));
+
+			assertThat(format(JoltTemporalFormatter.formatLocalDate(localDateTime.toLocalDate(), buffer, 0)))
+				.isEqualTo(DateTimeFormatter.ISO_LOCAL_DATE.format(localDateTime));
+			assertThat(format(JoltTemporalFormatter.formatLocalTime(localDateTime.toLocalTime(), buffer, 0)))
+				.isEqualTo(DateTimeFormatter.ISO_LOCAL_TIME.format(localDateTime));
+			assertThat(format(JoltTemporalFormatter.formatOffsetTime(OffsetTime.of(localDateTime.toLocalTime(), offset), buffer, 0)))
+				.isEqualTo(DateTimeFormatter.ISO_OFFSET_TIME.format(OffsetTime.of(localDateTime.toLocalTime(), offset)));
+			assertThat(format(JoltTemporalFormatter.formatLocalDateTime(localDateTime, buffer, 0)))
+				.isEqualTo(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(localDateTime));
+			assertThat(format(JoltTemporalFormatter.formatZonedDateTime(zonedDateTime, buffer, 0)))
+				.isEqualTo(DateTimeFormatter.ISO_ZONED_DATE_TIME.format(zonedDateTime));
+		}
+	}
+
+	@Test
+	void shouldFormatDurationsLikeDurationValue() {
+
+		var durations = List.of(
+			DurationValue.duration(0, 0, 0, 0),
+			DurationValue.duration(0, 0, -1, 5),
+			DurationValue.duration(0, 0, 0, -5),
+			DurationValue.duration(-12, -1, -3601, -1),
+			DurationValue.duration(14, 3, 3723, 500_000_000),
+			DurationValue.duration(0, 0, Long.MAX_VALUE / 2, 999_999_999)
+		);
+		for (var duration : durations) {
+			assertThat(format(JoltTemporalFormatter.formatDuration(duration, buffer, 0))).isEqualTo(duration.toString());
+		}
+
+		for (int i = 0; i < 10_000; ++i) {
+			var duration = DurationValue.duration(random.nextInt(20_000) - 10_000, random.nextInt(20_000) - 10_000,
+				random.nextInt() * 1000L, random.nextInt(1_000_000_000));
+			assertThat(format(JoltTemporalFormatter.formatDuration(duration, buffer, 0))).isEqualTo(duration.toString());
+		}
+	}
+
+	@Test
+	void shouldWriteTemporalsThroughTheCodec() throws IOException {
+
+		var zonedDateTime = ZonedDateTime.of(2020, 6, 15, 12, 30, 0, 1_000, ZoneId.of("Europe/Berlin"));
+		var duration = DurationValue.duration(14, 3, 3723, 500_000_000);
+
+		assertThat(objectMapper.writeValueAsString(List.of(zonedDateTime, LocalDate.of(-1, 1, 1), LocalTime.MIDNIGHT, duration)))
+			.isEqualTo("{\"[]\":["
+				+ "{\"T\":\"2020-06-15T12:30:00.000001+02:00[Europe/Berlin]\"},"
+				+ "{\"T\":\"-0001-01-01\"},"
+				+ "{\"T\":\"00:00:00\"},"
+				+ "{\"T\":\"P1Y2M3DT1H2M3.5S\"}]}");
+	}
+
+	private String format(int length) {
+		return new String(buffer, 0, length);
+	}
+}
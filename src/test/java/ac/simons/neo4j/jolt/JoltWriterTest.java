@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.DurationValue;
+import org.neo4j.values.storable.Values;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@ExtendWith(MockitoExtension.class)
+class JoltWriterTest {
+
+	private static String write(Object value, boolean strictModeEnabled, JoltCodec.BinaryEncoding binaryEncoding)
+		throws IOException {
+
+		var result = new StringWriter();
+		try (var generator = new JoltCodec(strictModeEnabled).getFactory().createGenerator(result)) {
+			new JoltWriter(generator, strictModeEnabled, binaryEncoding).writeValue(value);
+		}
+		return result.toString();
+	}
+
+	private static void assertSameAsCodec(Object value) throws IOException {
+
+		for (var strictModeEnabled : new boolean[] { true, false }) {
+			for (var binaryEncoding : JoltCodec.BinaryEncoding.values()) {
+				var expected = new JoltCodec(strictModeEnabled, binaryEncoding).writeValueAsString(value);
+				assertThat(write(value, strictModeEnabled, binaryEncoding)).isEqualTo(expected);
+			}
+		}
+	}
+
+	Stream<Arguments> values() {
+		return Stream.of(
+			1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE,
+			0L, 2147483647L, -2147483648L, 2147483648L, Long.MIN_VALUE,
+			(short) 3, (byte) -4, 1.5f, Float.NaN, new BigDecimal("1.50"),
+			42.23, Double.NaN, -0.0, 1e20, 1e-20,
+			"Hallo \"Welt\"\n", "", true, false,
+			new byte[0], new byte[] { 0, 1, 2, (byte) 0xff, (byte) 0x80 },
+			LocalDate.of(2020, 12, 14), LocalDate.of(-5, 1, 1), LocalTime.of(21, 21), LocalTime.of(1, 2, 3, 4_000),
+			OffsetTime.of(LocalTime.of(21, 21), ZoneOffset.ofHours(4)), LocalDateTime.of(2020, 12, 14, 17, 14),
+			ZonedDateTime.of(LocalDateTime.of(2020, 12, 14, 17, 14), ZoneId.of("Europe/Berlin")),
+			ZonedDateTime.of(LocalDateTime.of(2020, 12, 14, 17, 14), ZoneOffset.ofHoursMinutes(-3, -30)),
+			DurationValue.parse("P1Y2M3DT4H5M6.7S"),
+			Values.pointValue(CoordinateReferenceSystem.WGS84, 12.994823, 55.612191),
+			Values.pointValue(CoordinateReferenceSystem.Cartesian_3D, 1.0, 2.0, 3.5),
+			List.of(), List.of(1, 2, "3", 42.3, List.of(true)),
+			new TreeMap<>(Map.of("name", "Alice", "age", 33)), Map.of(), Map.of(1, "a"),
+			new long[] { 1L, 3_000_000_000L }, new int[] { 1 }, new short[] { 1, 2 }, new double[] { 1.5, 1e20 },
+			new float[] { 1.5f }, new boolean[] { true, false }, new char[] { 'a', '"' }, new String[] { "A", "B" },
+			new Object[] { 0L, true, "Hallo!", 42.23, LocalDate.of(2020, 3, 13), null }, new Long[] { 0L, 1L },
+			Label.label("Person"), RelationshipType.withName("KNOWS")
+		).map(Arguments::of);
+	}
+
+	@ParameterizedTest
+	@MethodSource("values")
+	void shouldWriteLikeTheCodec(Object value) throws IOException {
+
+		assertSameAsCodec(value);
+	}
+
+	@Test
+	void shouldWriteNull() throws IOException {
+
+		assertSameAsCodec(null);
+	}
+
+	@Test
+	void shouldWriteReaders() throws IOException {
+
+		for (var strictModeEnabled : new boolean[] { true, false }) {
+			var expected = new JoltCodec(strictModeEnabled).writeValueAsString(new StringReader("Hallo\n"));
+			assertThat(write(new StringReader("Hallo\n"), strictModeEnabled, JoltCodec.BinaryEncoding.HEX))
+				.isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void shouldWriteEntities(@Mock Node start, @Mock Node end, @Mock Relationship relationship, @Mock Path path)
+		throws IOException {
+
+		when(start.getId()).thenReturn(1L);
+		when(start.getLabels()).thenReturn(List.of(Label.label("A"), Label.label("B")));
+		when(start.getAllProperties()).thenReturn(new TreeMap<>(Map.of("name", "Alice", "age", 33)));
+		when(end.getId()).thenReturn(2L);
+		when(end.getLabels()).thenReturn(List.of());
+		when(relationship.getId()).thenReturn(10L);
+		when(relationship.getType()).thenReturn(RelationshipType.withName("KNOWS"));
+		when(relationship.getStartNodeId()).thenReturn(2L);
+		when(relationship.getEndNodeId()).thenReturn(1L);
+		when(relationship.getAllProperties()).thenReturn(Map.of("since", 1999));
+		when(path.iterator()).thenAnswer(invocation -> List.<Entity>of(start, relationship, end).iterator());
+
+		assertSameAsCodec(start);
+		assertSameAsCodec(relationship);
+		assertSameAsCodec(JoltRelationship.fromRelationshipReversed(relationship));
+		assertSameAsCodec(path);
+		assertSameAsCodec(List.of(start, Map.of("r", relationship)));
+	}
+
+	@Test
+	void shouldRejectUnsupportedTypes() {
+
+		assertThatIllegalArgumentException().isThrownBy(() -> write(Optional.empty(), true, JoltCodec.BinaryEncoding.HEX));
+	}
+}
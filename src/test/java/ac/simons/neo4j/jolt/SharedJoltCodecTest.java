@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.neo4j.jolt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+class SharedJoltCodecTest {
+
+	@ParameterizedTest
+	@ValueSource(booleans = { true, false })
+	void shouldWriteLikeAFreshCodec(boolean strictModeEnabled) throws JsonProcessingException {
+
+		var value = List.of(1, 2147483649L, "a", LocalDate.of(2020, 12, 14), Map.of("a", 42.23));
+		var expected = new JoltCodec(strictModeEnabled).writeValueAsString(value);
+
+		var result = SharedJoltCodec.of(strictModeEnabled).getWriter().writeValueAsString(value);
+		assertThat(result).isEqualTo(expected);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = { true, false })
+	void shouldReadLikeAFreshCodec(boolean strictModeEnabled) throws JsonProcessingException {
+
+		var document = "{\"[]\":[{\"U\":\"A\"},{\"Z\":\"21\"},{\"R\":\"42.3\"}]}";
+		var expected = new JoltCodec(strictModeEnabled).readValue(document, List.class);
+
+		List<?> result = SharedJoltCodec.of(strictModeEnabled).getReader(List.class).readValue(document);
+		assertThat(result).isEqualTo(expected);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = { true, false })
+	void shouldCacheReaders(boolean strictModeEnabled) {
+
+		var codec = SharedJoltCodec.of(strictModeEnabled);
+		assertThat(codec.getReader(Map.class)).isSameAs(codec.getReader(Map.class));
+		assertThat(codec.getReader(JoltSerializerTest.class)).isSameAs(codec.getReader(JoltSerializerTest.class));
+	}
+}